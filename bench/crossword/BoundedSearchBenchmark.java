@@ -0,0 +1,79 @@
+package crossword;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import crossword.Crossword.Board;
+import crossword.Crossword.BoardPosition;
+import crossword.Crossword.PuzzleResult;
+import crossword.Crossword.SearchOptions;
+
+/**
+ * JMH benchmarks for puzzle generation on inputs too large for the exhaustive
+ * search, over the first wordCount word/clue pairs of CrosswordBenchmark.CORPUS.
+ * The search is bounded to beam mode, with BEAM_WIDTH positions per level.
+ * @author yihedong
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BoundedSearchBenchmark {
+
+	/**
+	 * Do not change, otherwise results are no longer comparable with earlier runs.
+	 */
+	static final int BEAM_WIDTH = 100;
+
+	@Param({"20", "30", "45", "60"})
+	int wordCount;
+
+	/*words and hints alternating, as passed to processSet*/
+	List<String> wordsHintsList;
+	/*words in Board insertion order, longest first*/
+	List<String> orderedWordsList;
+	SearchOptions searchOptions;
+
+	@Setup(Level.Trial)
+	public void setup(){
+		wordsHintsList = Arrays.asList(Arrays.copyOf(CrosswordBenchmark.CORPUS, 2*wordCount));
+		orderedWordsList = Crossword.orderWordsList(
+				Crossword.buildWordHintsMap(wordsHintsList, new HashMap<String, String>()));
+		searchOptions = new SearchOptions().setBeamWidth(BEAM_WIDTH);
+	}
+
+	@Benchmark
+	public PuzzleResult processSetBeam(){
+		return Crossword.processSet(new ArrayList<String>(wordsHintsList), searchOptions, null);
+	}
+
+	/**
+	 * Includes the Board allocation, since each search needs its own Board.
+	 */
+	@Benchmark
+	public List<BoardPosition> boardBuildBeam(){
+		List<String> remainingWordsList = new ArrayList<String>(orderedWordsList);
+		String firstWord = remainingWordsList.remove(0);
+		return new Board(firstWord, remainingWordsList, searchOptions).build();
+	}
+
+}
@@ -0,0 +1,171 @@
+package crossword;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import crossword.Crossword.Board;
+import crossword.Crossword.BoardPosition;
+import crossword.Crossword.PuzzleNodeCoordinates;
+import crossword.Crossword.WordNode;
+
+/**
+ * JMH benchmarks for puzzle generation, over the first wordCount word/clue
+ * pairs of a fixed corpus. Run with ant benchmark, which also attaches the gc
+ * profiler for allocation rates. SampleTime mode reports the p0.99 latency.
+ * The search here is exhaustive, which takes seconds beyond 20 words, larger 
+ * inputs are in BoundedSearchBenchmark.
+ * @author yihedong
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CrosswordBenchmark {
+
+	/**
+	 * Fixed corpus, alternating word0,hint0,word1,hint1,... as in processSet.
+	 * Do not reorder or edit existing entries, otherwise results are no longer
+	 * comparable with earlier runs.
+	 */
+	static final String[] CORPUS = {
+		"APRIORI", "Not empirical", "POSED", "Not natural-looking",
+		"ARMHOLE", "Sometimes hard-to-find shirt opening", "ROUNDER", "Drunkard",
+		"ALLUDES", "Makes reference to", "CZAR", "Government policy chief",
+		"RIP", "Headstone inits", "CAMERA", "Smartphone feature",
+		"FINESSE", "Deft touch", "GRANNIES", "Ones in rocking chairs",
+		"DOPE", "Pretty cool in slang", "GREECE", "Mamma Mia setting",
+		"TREAT", "Goody", "ZOOM", "Speed along",
+		"BURRITO", "Chipotle choice", "MENUS", "Things in restaurant windows",
+		"FEAT", "Herculean act", "APPLE", "Green or red fruit",
+		"BANANA", "Yellow fruit", "ORANGE", "Citrus fruit",
+		"LEMON", "Sour fruit", "KIWI", "Fuzzy fruit",
+		"CHERRY", "Sundae topper", "PEAR", "Bartlett, e.g.",
+		"PLAY", "Stage production", "ALPS", "Swiss range",
+		"YARN", "Knitting supply", "WOMAN", "Lady",
+		"CROCODILE", "Nile reptile", "WATERMELON", "Summer picnic fruit",
+		"PINEAPPLE", "Tropical fruit", "BLUEBERRY", "Muffin fruit",
+		"AWESOME", "Cool", "OPERA", "Aria setting",
+		"EASEL", "Painter's stand", "ANTENNA", "Insect feeler",
+		"RADIO", "Wireless", "ISLAND", "Castaway's home",
+		"TENNIS", "Wimbledon sport", "OCEAN", "Atlantic, e.g.",
+		"SALAD", "Caesar dish", "RAVEN", "Poe bird",
+		"IGLOO", "Ice house", "NECTAR", "Bee's quest",
+		"ORBIT", "Path around a planet", "ELEVEN", "Team size in soccer",
+		"SONATA", "Piano piece", "TIARA", "Pageant crown",
+		"LASSO", "Cowboy's rope", "ENIGMA", "Puzzle",
+		"AROMA", "Bouquet", "TOPAZ", "November birthstone",
+		"ELBOW", "Arm joint", "VIOLIN", "Fiddle",
+		"MANTRA", "Repeated phrase", "NOODLE", "Ramen strand",
+		"QUARTET", "Foursome", "SPHINX", "Giza statue",
+		"GALAXY", "Milky Way, e.g.", "JIGSAW", "Kind of puzzle"
+	};
+
+	@Param({"3", "5", "10", "15", "20"})
+	int wordCount;
+
+	/*words and hints alternating, as passed to processSet*/
+	List<String> wordsHintsList;
+	/*words in Board insertion order, longest first*/
+	List<String> orderedWordsList;
+	Map<String, String> wordHintsMap;
+
+	@Setup(Level.Trial)
+	public void setup(){
+		wordsHintsList = Arrays.asList(Arrays.copyOf(CORPUS, 2*wordCount));
+		wordHintsMap = new HashMap<String, String>();
+		orderedWordsList = Crossword.orderWordsList(
+				Crossword.buildWordHintsMap(wordsHintsList, wordHintsMap));
+	}
+
+	/**
+	 * Creates a fresh Board, the root position is not yet expanded.
+	 */
+	Board newBoard(){
+		List<String> remainingWordsList = new ArrayList<String>(orderedWordsList);
+		String firstWord = remainingWordsList.remove(0);
+		return new Board(firstWord, remainingWordsList);
+	}
+
+	@Benchmark
+	public List<PuzzleNodeCoordinates> processSet(){
+		return Crossword.processSet(new ArrayList<String>(wordsHintsList));
+	}
+
+	/**
+	 * Includes the Board allocation, since each search needs its own Board.
+	 */
+	@Benchmark
+	public List<BoardPosition> boardBuild(){
+		return newBoard().build();
+	}
+
+	/**
+	 * Expansion of the root position, i.e. a single findLegalWordInsertion call.
+	 */
+	@State(Scope.Thread)
+	public static class RootExpansionState{
+		Board board;
+		List<List<WordNode>> rowWordNodeList;
+		List<List<WordNode>> colWordNodeList;
+
+		/*findLegalWordInsertion updates the root position, so each call needs a new Board.*/
+		@Setup(Level.Invocation)
+		public void setup(CrosswordBenchmark benchmark){
+			board = benchmark.newBoard();
+			rowWordNodeList = new ArrayList<List<WordNode>>();
+			colWordNodeList = new ArrayList<List<WordNode>>();
+			board.gatherWordNodes(board.rootBoardPosition, rowWordNodeList, colWordNodeList);
+		}
+	}
+
+	@Benchmark
+	public List<BoardPosition> findLegalWordInsertion(RootExpansionState state){
+		return state.board.rootBoardPosition.findLegalWordInsertion(state.rowWordNodeList,
+				state.colWordNodeList, state.board);
+	}
+
+	/**
+	 * Board already built, rendering does not modify it.
+	 */
+	@State(Scope.Thread)
+	public static class SolvedBoardState{
+		Board board;
+		BoardPosition bestBoardPos;
+
+		@Setup(Level.Trial)
+		public void setup(CrosswordBenchmark benchmark){
+			board = benchmark.newBoard();
+			board.build();
+			//fall back to root if no solution, still exercises rendering.
+			bestBoardPos = null == board.bestSolution() ? board.rootBoardPosition
+					: board.bestSolution();
+		}
+	}
+
+	@Benchmark
+	public List<PuzzleNodeCoordinates> visualizeBoardPositionPuzzle(SolvedBoardState state){
+		return state.board.visualizeBoardPositionPuzzle(state.bestBoardPos,
+				new StringBuilder(500), wordHintsMap);
+	}
+
+}
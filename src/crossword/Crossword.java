@@ -1,20 +1,44 @@
 package crossword;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -26,8 +50,11 @@ import org.apache.logging.log4j.Logger;
  */
 public class Crossword {
 	
-	//length of the crossword, one dimension
-	private static final int BOARD_LEN = 200;
+	//max number of leaves expanded by one fork/join task.
+	private static final int LEAF_CHUNK_SIZE = 4;
+	/*space before the first or after the last letter in a row/column, i.e. unbounded.
+	 Large enough for any word length without overflowing when offsets are added.*/
+	private static final int OPEN_SPACE = Integer.MAX_VALUE/2;
 	private static final char[] GREEK_ALPHA;
 	private static final int GREEK_ALPHA_LEN;
 	private static final String DEFAULT_ENCODING = "UTF-16";
@@ -50,18 +77,18 @@ public class Crossword {
 	/**
 	 * A node used during the nodes gathering process.
 	 */
-	private static class WordNode{
+	static class WordNode{
 		
-		char letter;
+		final char letter;
 		//WordNode nextNode;
 		/*WordNode upNode;
 		WordNode downNode;
 		WordNode leftNode;
 		WordNode rightNode;*/
 		//row number
-		int row;
+		final int row;
 		//col number
-		int col;		
+		final int col;		
 		WordNode(char letter_, int row_, int col_){
 			this.letter = letter_;
 			this.row = row_;
@@ -87,7 +114,7 @@ public class Crossword {
 		}*/	
 	}
 	//whether word is horizontal or vertical on the board.
-	private enum WordOrientation{
+	enum WordOrientation{
 		HORIZONTAL, VERTICAL;
 		
 		WordOrientation getOpposite(){
@@ -99,12 +126,41 @@ public class Crossword {
 		}
 	}
 	
+	/**
+	 * Counts for the leaves expanded by one thread. Only that thread writes 
+	 * to it, it's added to the level's counts once the thread is done.
+	 */
+	static class ExpansionCounts{
+		
+		//whether phases should be timed, i.e. a SearchListener is attached.
+		final boolean timed;
+		//(word, offset) pairs whose letter matches a board letter.
+		long candidatesTried;
+		//candidates that passed the legality checks.
+		long candidatesAccepted;
+		long gatherNanos;
+		long insertionNanos;
+		//children dropped for having the layout of an earlier child, counted when merging.
+		long transpositions;
+		
+		ExpansionCounts(boolean timed_){
+			this.timed = timed_;
+		}
+		
+		synchronized void add(ExpansionCounts counts){
+			this.candidatesTried += counts.candidatesTried;
+			this.candidatesAccepted += counts.candidatesAccepted;
+			this.gatherNanos += counts.gatherNanos;
+			this.insertionNanos += counts.insertionNanos;
+			this.transpositions += counts.transpositions;
+		}
+	}
+	
 	/**
 	 * Object representing the puzzle board.
 	 */
-	private static class Board{
+	static class Board{
 		
-		BoardNode[][] board = new BoardNode[BOARD_LEN][BOARD_LEN];
 		private static final char PLACEHOLDER_CHAR = ' ';
 		
 		/*
@@ -113,26 +169,46 @@ public class Crossword {
 		 */
 		private Set<Integer> rowSet = new TreeSet<Integer>();
 		private Set<Integer> colSet = new TreeSet<Integer>();
-		//set of board positions. 
-		private Set<BoardPosition> leafBoardPosSet = new HashSet<BoardPosition>();
-		private BoardPosition rootBoardPosition;
+		//board positions of the current level, in order of creation.
+		private List<BoardPosition> leafBoardPosList = new ArrayList<BoardPosition>();
+		BoardPosition rootBoardPosition;
+		private SearchOptions searchOptions;
+		//System.nanoTime() the search must stop by, 0 if none.
+		private long deadlineNanos;
+		//set once the search stopped early because of its SearchBudget.
+		private volatile boolean budgetExhausted;
+		//set once leaves were dropped to stay within SearchOptions.maxLivePositions.
+		private boolean pruned;
+		//positions the best unsolved one is picked from, if no solution is found.
+		private List<BoardPosition> partialBoardPosList = Collections.emptyList();
+		//best position found by the last build() with all words placed, null if none.
+		private BoardPosition bestSolution;
 		
 		public Board(String firstWord, List<String> remainingWordsList){
+			this(firstWord, remainingWordsList, new SearchOptions());
+		}
+		
+		public Board(String firstWord, List<String> remainingWordsList, SearchOptions searchOptions_){
+			this.searchOptions = searchOptions_;
 			//populate the starting row and column. Don't need this if not doing 
 			//linked list like construction.
 			/*for(int i = 0; i < BOARD_LEN; i++){
 				board[0][i] = new WordNode(PLACEHOLDER_CHAR, 0, i);
 				board[i][0] = new WordNode(PLACEHOLDER_CHAR, i, 0);
 			}*/
-			//insert first word horizontally. starting at center of board
-			int boardMiddle = BOARD_LEN/2;
-			int startingCol = boardMiddle - firstWord.length()/2;
+			//insert first word horizontally. Centered at 0, board grows in all directions.
+			int startingCol = -firstWord.length()/2;
 			
-			rootBoardPosition = new BoardPosition(null, remainingWordsList);
-			insertWord(firstWord, boardMiddle, startingCol, WordOrientation.HORIZONTAL, rootBoardPosition);
-			leafBoardPosSet.add(rootBoardPosition);
+			rootBoardPosition = new BoardPosition(null, WordSet.of(remainingWordsList));
+			rootBoardPosition.setWord(firstWord, 0, startingCol, WordOrientation.HORIZONTAL);
+			insertWord(rootBoardPosition);
+			leafBoardPosList.add(rootBoardPosition);
 			
 		}
+		
+		//stateless, can be shared.
+		private static final BoardPositionComparator BOARD_POS_COMPARATOR = new BoardPositionComparator();
+		
 		/**
 		 * Better boards have higher comparator value. Based on whether
 		 * how many words could be incorporated into a position, and the
@@ -142,46 +218,16 @@ public class Crossword {
 		private static class BoardPositionComparator implements Comparator<BoardPosition>{
 			
 			/**
-			 * map of boardPosition and total dist to any intersection.
-			 */
-			Map<BoardPosition, Integer> totalIntersectDistMap 
-				= new HashMap<BoardPosition, Integer>();
-			
-			/**
-			 * Constructor that creates totalIntersectDistMap.
-			 * @param board
-			 */
-			BoardPositionComparator(Board board){
-				Set<Integer> rowSet = board.rowSet;
-				Set<Integer> colSet = board.colSet;
-				
-				for(int row : rowSet){
-					for(int col : colSet){
-						BoardNode curNode = board.board[row][col];
-						if(null == curNode){
-							continue;
-						}
-						Map<BoardPosition, Integer> nodeBoardPosMap = curNode.distToIntersectMap;
-
-						for(Map.Entry<BoardPosition, Integer> entry : nodeBoardPosMap.entrySet()){
-							Integer curDist = totalIntersectDistMap.get(entry.getKey());
-							int distToAdd = null == curDist ? entry.getValue() : curDist + entry.getValue();
-							totalIntersectDistMap.put(entry.getKey(), distToAdd);								
-						}						
-					}					
-				}				
-			}
-			
-			/**
-			 * Larger is more optimal puzzle.
+			 * Larger is more optimal puzzle. Only reads the positions themselves, 
+			 * not the board.
 			 */
 			public int compare(BoardPosition boardPos1, BoardPosition boardPos2){
 				int count1 = boardPos1.totalWordIntersectionCount;
 				int count2 = boardPos2.totalWordIntersectionCount;
-				int wordsLeft1 = boardPos1.remainingWordsList.size();
-				int wordsLeft2 = boardPos2.remainingWordsList.size();
-				int totalIntersectDist1 = totalIntersectDistMap.get(boardPos1);
-				int totalIntersectDist2 = totalIntersectDistMap.get(boardPos2);
+				int wordsLeft1 = boardPos1.remainingWords.size();
+				int wordsLeft2 = boardPos2.remainingWords.size();
+				int totalIntersectDist1 = boardPos1.totalIntersectDist();
+				int totalIntersectDist2 = boardPos2.totalIntersectDist();
 				
 				return wordsLeft1 < wordsLeft2 ? 1 : (wordsLeft1 > wordsLeft2 
 						? -1 : count1 > count2 ? 1 : (count1 < count2								
@@ -192,46 +238,639 @@ public class Crossword {
 			}
 		}
 		
+		/**
+		 * Orders by decreasing intersection count, then increasing bounding box area.
+		 */
+		private static final Comparator<BoardPosition> DOMINANCE_COMPARATOR = new Comparator<BoardPosition>(){
+			public int compare(BoardPosition boardPos1, BoardPosition boardPos2){
+				int countCmp = Integer.compare(boardPos2.totalWordIntersectionCount, 
+						boardPos1.totalWordIntersectionCount);
+				return 0 != countCmp ? countCmp 
+						: Integer.compare(boardPos1.boundingBoxArea(), boardPos2.boundingBoxArea());
+			}
+		};
+		
 		/**
 		 * Builds the board.
-		 * @return the board positions with a solution. Ranked by total number 
-		 * of intersections amongst words in a BoardPosition.
+		 * @return the board positions with a solution, in order of creation. 
+		 * The best is bestSolution(), ranked by total number of intersections
+		 * amongst words in a BoardPosition.
 		 */
 		List<BoardPosition> build(){
+			return build(null);
+		}
+		
+		/**
+		 * Builds the board, stopping early once searchBudget runs out.
+		 * @param searchBudget limits of the search, null if unbounded.
+		 * @return the board positions with a solution, see build().
+		 */
+		List<BoardPosition> build(SearchBudget searchBudget){
 			
 			List<BoardPosition> satBoardPosList = new ArrayList<BoardPosition>();
+			long nodeLimit = Long.MAX_VALUE;
+			this.deadlineNanos = 0;
+			this.budgetExhausted = false;
+			this.pruned = false;
+			if(null != searchBudget){
+				if(searchBudget.nodeLimit() > 0){
+					nodeLimit = searchBudget.nodeLimit();
+				}
+				if(searchBudget.timeLimitNanos() > 0){
+					//never 0, as that means no deadline.
+					this.deadlineNanos = (System.nanoTime() + searchBudget.timeLimitNanos()) | 1;
+				}
+			}
+			long nodesExpanded = 0;
 			
-			while(satBoardPosList.size() < 1 && !this.leafBoardPosSet.isEmpty()){
-								
-				Set<BoardPosition> newLeafBoardPosSet = new HashSet<BoardPosition>();
+			//phases are only timed if someone listens.
+			SearchListener searchListener = searchOptions.searchListener();
+			boolean timed = null != searchListener;
+			int level = 0;
+			
+			while(satBoardPosList.size() < 1 && !this.leafBoardPosList.isEmpty()){
 				
-				for(BoardPosition leafBoardPos : this.leafBoardPosSet){
-					//System.out.println("leafBoardPos.remainingWordsList "+leafBoardPos.remainingWordsList);
-					if(leafBoardPos.remainingWordsList.isEmpty()){
+				this.partialBoardPosList = this.leafBoardPosList;
+				if(outOfTime()){
+					this.budgetExhausted = true;
+					break;
+				}
+				long levelStartNanos = timed ? System.nanoTime() : 0;
+				List<BoardPosition> newLeafBoardPosList = new ArrayList<BoardPosition>();
+				List<BoardPosition> unsatLeafBoardPosList = new ArrayList<BoardPosition>();
+				
+				for(BoardPosition leafBoardPos : this.leafBoardPosList){
+					if(leafBoardPos.remainingWords.isEmpty()){
 						//here
 						satBoardPosList.add(leafBoardPos);
-						continue;
+					}else{
+						unsatLeafBoardPosList.add(leafBoardPos);
 					}
-					
-					List<List<WordNode>> rowWordNodeList = new ArrayList<List<WordNode>>();
-					List<List<WordNode>> colWordNodeList = new ArrayList<List<WordNode>>();
-					
-					gatherWordNodes(leafBoardPos, rowWordNodeList, colWordNodeList);
-					//System.out.println("rowWordNodeList "+rowWordNodeList);
-					//System.out.println("colWordNodeList "+colWordNodeList);
-					
-					List<BoardPosition> childrenBoardPosList = leafBoardPos
-							.findLegalWordInsertion(rowWordNodeList, colWordNodeList, this);
-					System.out.println("childrenBoardPosList "+childrenBoardPosList);
-					//get list of leaf BoardPositions
-					newLeafBoardPosSet.addAll(childrenBoardPosList);
 				}
-				this.leafBoardPosSet = newLeafBoardPosSet;
+				if(unsatLeafBoardPosList.size() > nodeLimit - nodesExpanded){
+					//leaves are in order of creation, so the same ones are expanded on each run.
+					unsatLeafBoardPosList = unsatLeafBoardPosList.subList(0, (int)(nodeLimit - nodesExpanded));
+					this.budgetExhausted = true;
+				}
+				nodesExpanded += unsatLeafBoardPosList.size();
+				ExpansionCounts levelCounts = new ExpansionCounts(timed);
+				List<List<BoardPosition>> childrenListList = expandLeaves(unsatLeafBoardPosList, levelCounts);
+				long expandEndNanos = timed ? System.nanoTime() : 0;
+				//children are only inserted into board once the whole level is expanded,
+				//in order of their leaves, so the result doesn't depend on thread count.
+				Map<Long, BoardPosition> layoutMap = newLayoutMap();
+				for(List<BoardPosition> childrenBoardPosList : childrenListList){
+					for(BoardPosition childBoardPos : childrenBoardPosList){
+						if(isTransposition(childBoardPos, layoutMap)){
+							levelCounts.transpositions++;
+							continue;
+						}
+						insertWord(childBoardPos);
+						//get list of leaf BoardPositions
+						newLeafBoardPosList.add(childBoardPos);
+					}
+				}
+				long mergeEndNanos = timed ? System.nanoTime() : 0;
+				int childrenCount = newLeafBoardPosList.size();
+				if(this.budgetExhausted){
+					//children of this level have one fewer word left, but not all leaves were expanded.
+					List<BoardPosition> boardPosList = new ArrayList<BoardPosition>(this.leafBoardPosList);
+					boardPosList.addAll(newLeafBoardPosList);
+					this.partialBoardPosList = boardPosList;
+				}
+				this.leafBoardPosList = limitLeaves(newLeafBoardPosList);
+				if(timed){
+					searchListener.levelExpanded(new LevelStats(level, unsatLeafBoardPosList.size(), 
+							satBoardPosList.size(), childrenCount, levelCounts, expandEndNanos - levelStartNanos,
+							mergeEndNanos - expandEndNanos, System.nanoTime() - mergeEndNanos));
+				}
+				level++;
+				if(this.budgetExhausted){
+					break;
+				}
+			}
+			long rankStartNanos = timed ? System.nanoTime() : 0;
+			this.bestSolution = selectBest(satBoardPosList);
+			if(timed){
+				searchListener.searchFinished(level, satBoardPosList.size(), System.nanoTime() - rankStartNanos);
 			}
-			Collections.sort(satBoardPosList, new BoardPositionComparator(this));
 			return satBoardPosList;	
 		}
 		
+		/**
+		 * Builds the board further from boardPos, which was found by an earlier
+		 * build(), placing its remaining words and the given ones. The words 
+		 * already on boardPos stay where they are.
+		 * @param boardPos
+		 * @param addedWordsList words to add, those already placed are skipped.
+		 * @param searchBudget limits of the search, null if unbounded.
+		 * @return the board positions with a solution, see build().
+		 */
+		List<BoardPosition> build(BoardPosition boardPos, List<String> addedWordsList, 
+				SearchBudget searchBudget){
+			Set<String> placedWordsSet = boardPos.placedWords();
+			List<String> remainingWordsList = boardPos.remainingWords.toList();
+			for(String word : addedWordsList){
+				if(!placedWordsSet.contains(word)){
+					remainingWordsList.add(word);
+				}
+			}
+			this.leafBoardPosList = new ArrayList<BoardPosition>();
+			this.leafBoardPosList.add(boardPos.continuation(WordSet.of(orderWordsList(remainingWordsList))));
+			this.partialBoardPosList = Collections.emptyList();
+			return build(searchBudget);
+		}
+		
+		/**
+		 * Searches lazily, level by level as build() does, yielding each solved 
+		 * BoardPosition as soon as it's created, in order of creation. With a beam
+		 * width or cap on live positions, solved positions instead come once their
+		 * level is cut down, in the order build() keeps them. Leaves are 
+		 * only expanded when more solutions are asked for, so stopping early skips 
+		 * the rest of the search. The Board should not be built otherwise meanwhile.
+		 * @return iterator of solved positions.
+		 */
+		Iterator<BoardPosition> solutionIterator(){
+			return new SolutionIterator();
+		}
+		
+		/**
+		 * @return map for one level's layouts, null if searchOptions has
+		 * the transposition table off.
+		 */
+		private Map<Long, BoardPosition> newLayoutMap(){
+			return searchOptions.transpositionTable() ? new HashMap<Long, BoardPosition>() : null;
+		}
+		
+		/**
+		 * Whether boardPos has the same layout as a position of the same level 
+		 * created before it, then only that one is expanded. Otherwise records it.
+		 * @param layoutMap positions of the level by layoutHash, null if not checking.
+		 */
+		private static boolean isTransposition(BoardPosition boardPos, Map<Long, BoardPosition> layoutMap){
+			if(null == layoutMap){
+				return false;
+			}
+			BoardPosition samePos = layoutMap.putIfAbsent(boardPos.layoutHash, boardPos);
+			//if hashes collide, only the first is kept in the map.
+			return null != samePos && samePos.sameLayout(boardPos);
+		}
+		
+		/**
+		 * @return best solution of the last build(), null if none.
+		 */
+		BoardPosition bestSolution(){
+			return bestSolution;
+		}
+		
+		/**
+		 * Searches for all solutions, keeping only the best ones.
+		 * @param solutionCount max number of solutions to keep.
+		 * @return best solutions, ranked as by BoardPositionComparator, best first.
+		 */
+		List<BoardPosition> bestSolutions(int solutionCount){
+			List<BoardPosition> rankedBoardPosList = selectBest(solutionIterator(), solutionCount);
+			Collections.reverse(rankedBoardPosList);
+			return rankedBoardPosList;
+		}
+		
+		/**
+		 * Best position as ranked by BoardPositionComparator. Of equally ranked
+		 * positions the last one is picked.
+		 * @return best position, null if none.
+		 */
+		static BoardPosition selectBest(Iterable<BoardPosition> boardPositions){
+			BoardPosition bestBoardPos = null;
+			for(BoardPosition boardPos : boardPositions){
+				if(null == bestBoardPos || BOARD_POS_COMPARATOR.compare(boardPos, bestBoardPos) >= 0){
+					bestBoardPos = boardPos;
+				}
+			}
+			return bestBoardPos;
+		}
+		
+		/**
+		 * Best count positions as ranked by BoardPositionComparator, only holding 
+		 * O(count) of them at a time. Of equally ranked positions the later ones
+		 * rank higher, as with selectBest.
+		 * @return best positions, best last.
+		 */
+		static List<BoardPosition> selectBest(Iterator<BoardPosition> boardPosIter, int count){
+			List<BoardPosition> rankedBoardPosList = new ArrayList<BoardPosition>();
+			while(boardPosIter.hasNext()){
+				rankedBoardPosList.add(boardPosIter.next());
+				//ranked once twice as many have accumulated.
+				if(rankedBoardPosList.size() >= 2*count){
+					rankedBoardPosList = keepBest(rankedBoardPosList, count);
+				}
+			}
+			return keepBest(rankedBoardPosList, count);
+		}
+		
+		/**
+		 * Stable sort, so ties stay in order of creation.
+		 * @return best count positions, best last.
+		 */
+		private static List<BoardPosition> keepBest(List<BoardPosition> boardPosList, int count){
+			Collections.sort(boardPosList, BOARD_POS_COMPARATOR);
+			int size = boardPosList.size();
+			return new ArrayList<BoardPosition>(boardPosList.subList(Math.max(0, size - count), size));
+		}
+		
+		/**
+		 * Expands the leaves of each level a batch at a time, solved children 
+		 * are queued until asked for, and not kept past that. The layout table
+		 * only keeps their placements, to drop later transpositions of them. 
+		 * If leaves are cut by the beam width or the
+		 * cap on live positions, solved children are only queued once their level 
+		 * is cut, in the order build() keeps them, so the same solutions are found.
+		 * Notifies the SearchListener of each level as build() does, and once the
+		 * last solution has been returned, with no ranking time since solutions 
+		 * are ranked by the caller.
+		 */
+		private class SolutionIterator implements Iterator<BoardPosition>{
+			
+			private final Deque<BoardPosition> solvedBoardPosQueue = new ArrayDeque<BoardPosition>();
+			//children of the leaves expanded so far on this level.
+			private List<BoardPosition> newLeafBoardPosList = new ArrayList<BoardPosition>();
+			//index of next leaf to expand.
+			private int leafIndex;
+			//layouts of the children so far on this level.
+			private Map<Long, BoardPosition> layoutMap = newLayoutMap();
+			//leaves expanded at a time, enough to keep a ForkJoinPool busy.
+			private final int batchSize;
+			//whether limitLeaves can drop solved children, then they wait for it.
+			private final boolean leavesLimited;
+			private final SearchListener searchListener;
+			//level being expanded, and its counts and times so far, for searchListener.
+			private int level;
+			private int levelNodesExpanded;
+			private int levelSolvedCount;
+			private ExpansionCounts levelCounts;
+			private long levelExpandNanos;
+			private long levelMergeNanos;
+			//solved children of this level already queued, not kept as leaves.
+			private int queuedChildCount;
+			//solutions queued so far.
+			private int solvedCount;
+			private boolean finished;
+			
+			SolutionIterator(){
+				ForkJoinPool forkJoinPool = searchOptions.forkJoinPool();
+				this.batchSize = null == forkJoinPool ? 1 : forkJoinPool.getParallelism() * LEAF_CHUNK_SIZE;
+				this.leavesLimited = searchOptions.beamWidth() > 0 || searchOptions.maxLivePositions() > 0;
+				this.searchListener = searchOptions.searchListener();
+				this.levelCounts = new ExpansionCounts(null != searchListener);
+				pruned = false;
+				for(BoardPosition leafBoardPos : leafBoardPosList){
+					if(leafBoardPos.remainingWords.isEmpty()){
+						levelSolvedCount++;
+						queueSolved(leafBoardPos);
+					}
+				}
+			}
+			
+			@Override
+			public boolean hasNext(){
+				//a level of solutions queued as they were created still needs finishing.
+				while(solvedBoardPosQueue.isEmpty() && (!leafBoardPosList.isEmpty() || 0 != levelSolvedCount)){
+					expandNextLeaves();
+				}
+				if(solvedBoardPosQueue.isEmpty() && !finished){
+					finished = true;
+					if(null != searchListener){
+						searchListener.searchFinished(level, solvedCount, 0);
+					}
+				}
+				return !solvedBoardPosQueue.isEmpty();
+			}
+			
+			@Override
+			public BoardPosition next(){
+				if(!hasNext()){
+					throw new NoSuchElementException();
+				}
+				return solvedBoardPosQueue.poll();
+			}
+			
+			private void queueSolved(BoardPosition boardPos){
+				solvedBoardPosQueue.add(boardPos);
+				solvedCount++;
+			}
+			
+			private void expandNextLeaves(){
+				boolean timed = null != searchListener;
+				int leafCount = leafBoardPosList.size();
+				if(leafIndex == leafCount){
+					finishLevel(timed);
+					return;
+				}
+				int end = Math.min(leafIndex + batchSize, leafCount);
+				List<BoardPosition> unsatLeafBoardPosList = new ArrayList<BoardPosition>(end - leafIndex);
+				for(BoardPosition leafBoardPos : leafBoardPosList.subList(leafIndex, end)){
+					//solved ones were queued when the level started.
+					if(!leafBoardPos.remainingWords.isEmpty()){
+						unsatLeafBoardPosList.add(leafBoardPos);
+					}
+				}
+				leafIndex = end;
+				levelNodesExpanded += unsatLeafBoardPosList.size();
+				long startNanos = timed ? System.nanoTime() : 0;
+				List<List<BoardPosition>> childrenListList = expandLeaves(unsatLeafBoardPosList, levelCounts);
+				long expandEndNanos = timed ? System.nanoTime() : 0;
+				//inserted in same order as by build()
+				for(List<BoardPosition> childrenBoardPosList : childrenListList){
+					for(BoardPosition childBoardPos : childrenBoardPosList){
+						if(isTransposition(childBoardPos, layoutMap)){
+							levelCounts.transpositions++;
+							continue;
+						}
+						insertWord(childBoardPos);
+						if(!leavesLimited && childBoardPos.remainingWords.isEmpty()){
+							if(null != layoutMap && childBoardPos == layoutMap.get(childBoardPos.layoutHash)){
+								layoutMap.put(childBoardPos.layoutHash, childBoardPos.placementOnly());
+							}
+							queuedChildCount++;
+							queueSolved(childBoardPos);
+							continue;
+						}
+						newLeafBoardPosList.add(childBoardPos);
+					}
+				}
+				if(timed){
+					levelExpandNanos += expandEndNanos - startNanos;
+					levelMergeNanos += System.nanoTime() - expandEndNanos;
+				}
+			}
+			
+			/**
+			 * Cuts the children of the level as build() does, and starts the next level.
+			 */
+			private void finishLevel(boolean timed){
+				long rankStartNanos = timed ? System.nanoTime() : 0;
+				int childrenCount = newLeafBoardPosList.size() + queuedChildCount;
+				leafBoardPosList = limitLeaves(newLeafBoardPosList);
+				if(timed){
+					searchListener.levelExpanded(new LevelStats(level, levelNodesExpanded, levelSolvedCount, 
+							childrenCount, levelCounts, levelExpandNanos, levelMergeNanos, 
+							System.nanoTime() - rankStartNanos));
+				}
+				level++;
+				levelNodesExpanded = 0;
+				levelSolvedCount = queuedChildCount;
+				queuedChildCount = 0;
+				levelCounts = new ExpansionCounts(timed);
+				levelExpandNanos = 0;
+				levelMergeNanos = 0;
+				newLeafBoardPosList = new ArrayList<BoardPosition>();
+				layoutMap = newLayoutMap();
+				leafIndex = 0;
+				for(BoardPosition leafBoardPos : leafBoardPosList){
+					if(leafBoardPos.remainingWords.isEmpty()){
+						levelSolvedCount++;
+						if(leavesLimited){
+							queueSolved(leafBoardPos);
+						}
+					}
+				}
+			}
+		}
+		
+		/**
+		 * @return whether the deadline of the search has passed.
+		 */
+		private boolean outOfTime(){
+			return 0 != deadlineNanos && System.nanoTime() - deadlineNanos > 0;
+		}
+		
+		/**
+		 * Whether the last build() stopped early because its SearchBudget ran out.
+		 */
+		boolean budgetExhausted(){
+			return budgetExhausted;
+		}
+		
+		/**
+		 * Whether the last build() dropped leaves because of SearchOptions.maxLivePositions.
+		 */
+		boolean pruned(){
+			return pruned;
+		}
+		
+		/**
+		 * Best position of the last level reached by build(), ranked as by 
+		 * BoardPositionComparator. To fall back on if there is no solution.
+		 * @return best unsolved position, or null if build() hasn't run.
+		 */
+		BoardPosition bestPartialBoardPosition(){
+			return selectBest(partialBoardPosList);
+		}
+		
+		/**
+		 * Drops the positions of the last level reached by build(), once the 
+		 * best has been picked, so a Board kept around doesn't hold them.
+		 */
+		void clearFrontier(){
+			this.leafBoardPosList = new ArrayList<BoardPosition>();
+			this.partialBoardPosList = Collections.emptyList();
+		}
+		
+		/**
+		 * Expands leaves, in parallel if searchOptions has a ForkJoinPool. Only reads
+		 * the board, the children returned have yet to be inserted.
+		 * @param leafBoardPosList
+		 * @param levelCounts counts of the whole level, added to by each thread.
+		 * @return lists of children BoardPosition's, in same order as leaves.
+		 */
+		private List<List<BoardPosition>> expandLeaves(List<BoardPosition> leafBoardPosList, 
+				ExpansionCounts levelCounts){
+			ForkJoinPool forkJoinPool = searchOptions.forkJoinPool();
+			if(null == forkJoinPool || leafBoardPosList.size() <= LEAF_CHUNK_SIZE){
+				return expandLeaves(leafBoardPosList, 0, leafBoardPosList.size(), levelCounts);
+			}
+			return forkJoinPool.invoke(new ExpandLeavesTask(this, leafBoardPosList, 0, 
+					leafBoardPosList.size(), levelCounts));
+		}
+		
+		/**
+		 * Expands leaves from index start, inclusive, to end, exclusive.
+		 * @return lists of children BoardPosition's, in same order as leaves.
+		 */
+		List<List<BoardPosition>> expandLeaves(List<BoardPosition> leafBoardPosList, int start, int end,
+				ExpansionCounts levelCounts){
+			List<List<BoardPosition>> childrenListList = new ArrayList<List<BoardPosition>>(end - start);
+			ExpansionCounts counts = new ExpansionCounts(levelCounts.timed);
+			for(int i = start; i < end; i++){
+				if(outOfTime()){
+					//the level is merged with the leaves expanded so far.
+					budgetExhausted = true;
+					break;
+				}
+				BoardPosition leafBoardPos = leafBoardPosList.get(i);
+				List<List<WordNode>> rowWordNodeList = new ArrayList<List<WordNode>>();
+				List<List<WordNode>> colWordNodeList = new ArrayList<List<WordNode>>();
+				
+				long startNanos = counts.timed ? System.nanoTime() : 0;
+				gatherWordNodes(leafBoardPos, rowWordNodeList, colWordNodeList);
+				//System.out.println("rowWordNodeList "+rowWordNodeList);
+				//System.out.println("colWordNodeList "+colWordNodeList);
+				long gatherEndNanos = counts.timed ? System.nanoTime() : 0;
+				
+				childrenListList.add(leafBoardPos
+						.findLegalWordInsertion(rowWordNodeList, colWordNodeList, this, counts));
+				if(counts.timed){
+					counts.gatherNanos += gatherEndNanos - startNanos;
+					counts.insertionNanos += System.nanoTime() - gatherEndNanos;
+				}
+			}
+			levelCounts.add(counts);
+			return childrenListList;
+		}
+		
+		/**
+		 * Expands a range of leaves, splitting it in halves until it's
+		 * at most LEAF_CHUNK_SIZE long. Each leaf is only expanded by one
+		 * task, and the board is not written to.
+		 */
+		private static class ExpandLeavesTask extends RecursiveTask<List<List<BoardPosition>>>{
+			
+			private static final long serialVersionUID = 1L;
+			private final Board board;
+			private final List<BoardPosition> leafBoardPosList;
+			private final int start;
+			private final int end;
+			private final ExpansionCounts levelCounts;
+			
+			ExpandLeavesTask(Board board_, List<BoardPosition> leafBoardPosList_, int start_, int end_,
+					ExpansionCounts levelCounts_){
+				this.board = board_;
+				this.leafBoardPosList = leafBoardPosList_;
+				this.start = start_;
+				this.end = end_;
+				this.levelCounts = levelCounts_;
+			}
+			
+			@Override
+			protected List<List<BoardPosition>> compute(){
+				if(end - start <= LEAF_CHUNK_SIZE){
+					return board.expandLeaves(leafBoardPosList, start, end, levelCounts);
+				}
+				int mid = (start + end) >>> 1;
+				ExpandLeavesTask firstHalfTask = new ExpandLeavesTask(board, leafBoardPosList, start, mid, levelCounts);
+				firstHalfTask.fork();
+				List<List<BoardPosition>> secondHalfList 
+					= new ExpandLeavesTask(board, leafBoardPosList, mid, end, levelCounts).compute();
+				List<List<BoardPosition>> childrenListList = firstHalfTask.join();
+				childrenListList.addAll(secondHalfList);
+				return childrenListList;
+			}
+		}
+		
+		/**
+		 * Cuts the leaves of the next level down to the dominance keep count, 
+		 * then the beam width, then the cap on live positions, if set.
+		 * @param newLeafBoardPosList leaves, in order of creation.
+		 * @return leaves to expand.
+		 */
+		private List<BoardPosition> limitLeaves(List<BoardPosition> newLeafBoardPosList){
+			int dominanceKeepCount = searchOptions.dominanceKeepCount();
+			if(dominanceKeepCount > 0){
+				newLeafBoardPosList = selectNonDominated(newLeafBoardPosList, dominanceKeepCount);
+			}
+			int beamWidth = searchOptions.beamWidth();
+			if(beamWidth > 0 && newLeafBoardPosList.size() > beamWidth){
+				newLeafBoardPosList = selectBeam(newLeafBoardPosList, beamWidth);
+			}
+			int maxLivePositions = searchOptions.maxLivePositions();
+			if(maxLivePositions > 0 && newLeafBoardPosList.size() > maxLivePositions){
+				newLeafBoardPosList = selectBeam(newLeafBoardPosList, maxLivePositions);
+				this.pruned = true;
+			}
+			return newLeafBoardPosList;
+		}
+		
+		/**
+		 * Groups the unsolved BoardPosition's by remaining words, and keeps the ones 
+		 * in each group no other one dominates, i.e. has at least as many intersections 
+		 * and at most the bounding box area, and is better in one of them. If more 
+		 * than keepCount are left in a group, the best keepCount are kept, as ranked
+		 * by BoardPositionComparator. Solved positions are all kept.
+		 * This is a heuristic, a dominated position can still have the best solution
+		 * among its descendants, see SearchOptions.setDominanceKeepCount.
+		 * @param boardPosList
+		 * @param keepCount
+		 * @return kept BoardPosition's, in order of boardPosList.
+		 */
+		List<BoardPosition> selectNonDominated(List<BoardPosition> boardPosList, int keepCount){
+			Map<WordSet, List<BoardPosition>> groupMap = new HashMap<WordSet, List<BoardPosition>>();
+			Set<BoardPosition> keptBoardPosSet = new HashSet<BoardPosition>();
+			for(BoardPosition boardPos : boardPosList){
+				if(boardPos.remainingWords.isEmpty()){
+					keptBoardPosSet.add(boardPos);
+					continue;
+				}
+				List<BoardPosition> group = groupMap.get(boardPos.remainingWords);
+				if(null == group){
+					group = new ArrayList<BoardPosition>();
+					groupMap.put(boardPos.remainingWords, group);
+				}
+				group.add(boardPos);
+			}
+			if(groupMap.size() + keptBoardPosSet.size() == boardPosList.size()){
+				return boardPosList;
+			}
+			for(List<BoardPosition> group : groupMap.values()){
+				if(1 == group.size()){
+					keptBoardPosSet.add(group.get(0));
+					continue;
+				}
+				//most intersections first, then smallest area. A position is dominated 
+				//by an earlier one, unless it's the smallest of its count, and smaller
+				//than all positions with more intersections.
+				List<BoardPosition> sortedGroup = new ArrayList<BoardPosition>(group);
+				Collections.sort(sortedGroup, DOMINANCE_COMPARATOR);
+				List<BoardPosition> frontList = new ArrayList<BoardPosition>();
+				int minArea = Integer.MAX_VALUE;
+				int countMinArea = Integer.MAX_VALUE;
+				int count = -1;
+				for(BoardPosition boardPos : sortedGroup){
+					int area = boardPos.boundingBoxArea();
+					if(boardPos.totalWordIntersectionCount != count){
+						count = boardPos.totalWordIntersectionCount;
+						minArea = Math.min(minArea, countMinArea);
+						countMinArea = area;
+					}
+					if(area == countMinArea && area < minArea){
+						frontList.add(boardPos);
+					}
+				}
+				if(frontList.size() > keepCount){
+					frontList = selectBeam(frontList, keepCount);
+				}
+				keptBoardPosSet.addAll(frontList);
+			}
+			List<BoardPosition> keptBoardPosList = new ArrayList<BoardPosition>(keptBoardPosSet.size());
+			for(BoardPosition boardPos : boardPosList){
+				if(keptBoardPosSet.contains(boardPos)){
+					keptBoardPosList.add(boardPos);
+				}
+			}
+			return keptBoardPosList;
+		}
+		
+		/**
+		 * Keeps the beamWidth best BoardPosition's, as ranked by BoardPositionComparator.
+		 * @param boardPosList
+		 * @param beamWidth
+		 * @return best BoardPosition's, best first.
+		 */
+		private List<BoardPosition> selectBeam(List<BoardPosition> boardPosList, int beamWidth){
+			List<BoardPosition> rankedBoardPosList = new ArrayList<BoardPosition>(boardPosList);
+			Collections.sort(rankedBoardPosList, Collections.reverseOrder(BOARD_POS_COMPARATOR));
+			return new ArrayList<BoardPosition>(rankedBoardPosList.subList(0, beamWidth));
+		}
+		
+		
 		/**
 		 * Prints out visualization of the given BoardPosition.
 		 * @param boardPos
@@ -244,20 +883,14 @@ public class Crossword {
 			int largestCol = colSetList.get(colSetList.size()-1);
 			int colSetDiff = largestCol - smallestCol + 1;
 			//System.out.println("colSetDiff "+colSetDiff);
+			int[] colRangeAr = boardPos.getColRangeToPrint(this);
 			for(int j : rowSet){
 				//List<WordNode> nodeList = new ArrayList<WordNode>();
 				char[] rowAr = new char[colSetDiff];
-				int[] colRangeAr = boardPos.getColRangeToPrint(this);
 				//System.out.println("colRangeAr "+Arrays.toString(colRangeAr));
 				for(int i = colRangeAr[0]; i < colRangeAr[1]; i++){
-					BoardNode boardNode = this.board[j][i];
-					if(null == boardNode){
-						rowAr[i-smallestCol] = PLACEHOLDER_CHAR;
-						continue;
-					}
-					BoardPosition posContained = boardNode.containsBoardPosition(boardPos);
-					if(null != posContained){
-						rowAr[i-smallestCol] = boardNode.boardPosCharMap.get(posContained);
+					if(boardPos.containsLetter(j, i)){
+						rowAr[i-smallestCol] = boardPos.letterAt(j, i);
 					}else{
 						rowAr[i-smallestCol] = PLACEHOLDER_CHAR;
 					}
@@ -267,11 +900,8 @@ public class Crossword {
 			StringBuilder sb = new StringBuilder(500);
 			for(char[] rowAr : boardRowList){
 				for(char c : rowAr){
-					String s = c + " ";
-					System.out.print(s);
-					sb.append(s);
+					sb.append(c).append(' ');
 				}
-				System.out.println();
 				sb.append("\n");
 				//System.out.println(Arrays.toString(rowAr));
 			}
@@ -285,161 +915,75 @@ public class Crossword {
 		 */
 		public List<PuzzleNodeCoordinates> visualizeBoardPositionPuzzle(BoardPosition boardPos, 
 				StringBuilder sb, Map<String, String> wordHintsMap){
-			List<char[]> boardRowList = new ArrayList<char[]>();
+			CompactPuzzle compactPuzzle = CompactPuzzle.of(this, boardPos, wordHintsMap);
 			char blackSquareChar = '\u25a0';
 			
 			List<Integer> colSetList = new ArrayList<Integer>(colSet);
 			int smallestCol = colSetList.get(0);
 			int largestCol = colSetList.get(colSetList.size()-1);
 			int colSetDiff = largestCol - smallestCol + 1;
-			int wordCounter = -1;
+			int[] colRangeAr = boardPos.getColRangeToPrint(this);
+			char[][] boardRowAr = new char[rowSet.size()][colSetDiff];
+			for(char[] rowAr : boardRowAr){
+				Arrays.fill(rowAr, colRangeAr[0]-smallestCol, colRangeAr[1]+1-smallestCol, blackSquareChar);
+			}
+			int[] cellAr = compactPuzzle.cellAr();
+			char[] cellLabelAr = compactPuzzle.cellLabelAr();
+			for(int i = 0; i < cellLabelAr.length; i++){
+				boardRowAr[cellAr[2*i]][cellAr[2*i+1]] = cellLabelAr[i];
+			}
 			/*labels of squares and the words they start*/
 			Map<Character, String> horIntWordMap = new HashMap<Character, String>();
 			Map<Character, String> verIntWordMap = new HashMap<Character, String>();
-			
-			List<PuzzleNodeCoordinates> coordinatesList = new ArrayList<PuzzleNodeCoordinates>();
-			
-			List<Integer> rowCoordinatesList = new ArrayList<Integer>();
-			List<Integer> colCoordinatesList = new ArrayList<Integer>();
-			List<Character> labelList = new ArrayList<Character>();
-			int rowCounter = 0;
-			
-			for(int j : rowSet){
-
-				char[] rowAr = new char[colSetDiff];
-				int[] colRangeAr = boardPos.getColRangeToPrint(this);
-				
-				for(int i = colRangeAr[0]; i < colRangeAr[1]+1; i++){
-					BoardNode boardNode = this.board[j][i];
-					if(null == boardNode){
-						rowAr[i-smallestCol] = blackSquareChar;
-						continue;
-					}
-					Character keyChar = null;
-					BoardPosition posContained = boardNode.containsBoardPosition(boardPos);
-					if(null != posContained){
-						String horWordStart = boardNode
-								.containsWordStart(boardPos, WordOrientation.HORIZONTAL);
-						String verWordStart;
-						boolean wordAdded = false;
-						if(null != horWordStart){
-							wordCounter++;
-							keyChar = GREEK_ALPHA[wordCounter%GREEK_ALPHA_LEN];
-							horIntWordMap.put(keyChar, horWordStart);
-							rowAr[i-smallestCol] = keyChar;
-							
-							rowCoordinatesList.add(rowCounter);
-							colCoordinatesList.add(i-smallestCol);
-							labelList.add(keyChar);
-							
-							wordAdded = true;
-						}
-						if(null != (verWordStart=boardNode
-								.containsWordStart(boardPos, WordOrientation.VERTICAL))){
-							if(!wordAdded){
-								wordCounter++;
-							}
-							keyChar = GREEK_ALPHA[wordCounter % GREEK_ALPHA_LEN];
-							
-							verIntWordMap.put(keyChar, verWordStart);
-							
-							if(!wordAdded){
-								//currently limited by number of labels in GREEK_ALPHA
-								rowAr[i-smallestCol] = keyChar;
-								
-								rowCoordinatesList.add(rowCounter);
-								colCoordinatesList.add(i-smallestCol);
-								labelList.add(keyChar);								
-							}
-							wordAdded = true;
-						}
-						if(!wordAdded){
-							rowAr[i-smallestCol] = PLACEHOLDER_CHAR;
-							keyChar = PLACEHOLDER_CHAR;
-							
-							rowCoordinatesList.add(rowCounter);
-							colCoordinatesList.add(i-smallestCol);
-							labelList.add(PLACEHOLDER_CHAR);							
-						}
-						
-						PuzzleNodeCoordinates nodeC 
-							= new PuzzleNodeCoordinates(rowCounter, i-smallestCol, keyChar, 
-									horWordStart, verWordStart, wordHintsMap);
-						coordinatesList.add(nodeC);
-						///rowAr[i-smallestCol] = boardNode.boardPosCharMap.get(posContained);
-					}else{
-						rowAr[i-smallestCol] = blackSquareChar;
-					}
-				}
-				boardRowList.add(rowAr);
-				rowCounter++; 
+			int[] slotAr = compactPuzzle.slotAr();
+			char[] slotLabelAr = compactPuzzle.slotLabelAr();
+			String[] slotWordAr = compactPuzzle.slotWordAr();
+			for(int slot = 0; slot < slotWordAr.length; slot++){
+				(CompactPuzzle.ACROSS == slotAr[3*slot+2] ? horIntWordMap : verIntWordMap)
+					.put(slotLabelAr[slot], slotWordAr[slot]);
 			}
-			//StringBuilder sb = new StringBuilder(500);
-			for(char[] rowAr : boardRowList){
+			for(char[] rowAr : boardRowAr){
 				for(char c : rowAr){
-					String s = c + " ";
-					System.out.print(s);
-					sb.append(s);
+					sb.append(c).append(' ');
 				}
-				System.out.println();
 				sb.append("\n");
-				//System.out.println(Arrays.toString(rowAr));
 			}
-			System.out.println("horIntWordMap: "+horIntWordMap);
 			sb.append("horIntWordMap "+horIntWordMap).append("\n");
-			System.out.println("verIntWordMap "+verIntWordMap);
 			sb.append("verIntWordMap "+verIntWordMap).append("\n");
-			
-			/*return new PuzzleCoordinates(
-					rowCoordinatesList, colCoordinatesList,
-					labelList, horIntWordMap, verIntWordMap
-					);*/
-			return coordinatesList;
+			return compactPuzzle.toCoordinatesList();
 		}
 		
 		/**
+		 * Inserts the word recorded in boardPos, with BoardPosition.setWord.
 		 * Legality of adding the word must be determined before calling this.
-		 * @param word
-		 * @param rowStart
-		 * @param colStart
-		 * @param orient
+		 * The letters themselves are in boardPos's line indices, the board only
+		 * records which rows and columns are used.
 		 * @param boardPos
 		 */
-		void insertWord(String word, int rowStart, int colStart, WordOrientation orient,
-				BoardPosition boardPos){
+		void insertWord(BoardPosition boardPos){
+			String word = boardPos.word;
+			int rowStart = boardPos.wordRow;
+			int colStart = boardPos.wordCol;
+			WordOrientation orient = boardPos.wordOrient;
 			if(WordOrientation.HORIZONTAL == orient){			
 				for(int i = 0; i < word.length(); i++){
-					char curChar = word.charAt(i);
-					BoardNode node = board[rowStart][colStart+i];
-					if(null == node){
-						node = new BoardNode(curChar, boardPos);
-						board[rowStart][colStart+i] = node;
-					}
-					node.addBoardPosition(curChar, boardPos, this, orient, rowStart, colStart+i);
 					colSet.add(colStart + i);
-					//
 				}	
 				rowSet.add(rowStart);
 			}else{
 				for(int i = 0; i < word.length(); i++){
-					char curChar = word.charAt(i);
-					BoardNode node = board[rowStart+i][colStart];
-					if(null == node){
-						node = new BoardNode(curChar, boardPos);
-						board[rowStart+i][colStart] = node;
-					}
-					node.addBoardPosition(curChar, boardPos, this, orient, rowStart+i, colStart);
 					rowSet.add(rowStart+i);
-					//
-					
 				}
 				colSet.add(colStart);
 			}
-			board[rowStart][colStart].addBoardPosWordStart(boardPos, word, orient);
 		}
 		   
 		/**
-		 * Fill up given lists with WordNode's, for given board position
+		 * Fill up given lists with WordNode's, for given board position. 
+		 * Only rows and columns containing letters of the position are added, 
+		 * in increasing order. The lists of rows and columns the position's word
+		 * doesn't touch are shared with its parent, see LineIndex.Line.wordNodes, 
+		 * so they must not be modified.
 		 * @param boardPosition
 		 * @param rowWordNodeList
 		 * @param colWordNodeList
@@ -448,312 +992,534 @@ public class Crossword {
 				List<List<WordNode>> colWordNodeList){
 			
 			//gather row nodes
-			for(int rowNum : rowSet){
-				List<WordNode> nodeList = new ArrayList<WordNode>();
-				for(int i = 0; i < BOARD_LEN; i++){
-					BoardNode boardNode = this.board[rowNum][i];
-					if(null == boardNode){
-						continue;
-					}
-					BoardPosition posContained = boardNode.containsBoardPosition(boardPosition);
-					if(null != posContained){
-						char boardNodeLetter = boardNode.boardPosCharMap.get(posContained);
-						nodeList.add(new WordNode(boardNodeLetter, rowNum, i));					
-					}					
+			LineIndex rowIndex = boardPosition.rowIndex;
+			for(int i = 0; i < rowIndex.lineSpan(); i++){
+				int rowNum = rowIndex.firstLineNum() + i;
+				LineIndex.Line line = rowIndex.line(rowNum);
+				if(null == line){
+					continue;
 				}
-				rowWordNodeList.add(nodeList);
+				rowWordNodeList.add(line.wordNodes(rowNum, true));
 			}
 			//gather column nodes
-			for(int colNum : colSet){
-				List<WordNode> nodeList = new ArrayList<WordNode>();
-				for(int i = 0; i < BOARD_LEN; i++){
-					BoardNode boardNode = this.board[i][colNum];
-					if(null == boardNode){
-						continue;
-					}
-					BoardPosition posContained = boardNode.containsBoardPosition(boardPosition);
-					if(null != posContained){
-						char boardNodeLetter = boardNode.boardPosCharMap.get(posContained);
-						nodeList.add(new WordNode(boardNodeLetter, i, colNum));						
-					}					
-				}	
-				colWordNodeList.add(nodeList);
+			LineIndex colIndex = boardPosition.colIndex;
+			for(int i = 0; i < colIndex.lineSpan(); i++){
+				int colNum = colIndex.firstLineNum() + i;
+				LineIndex.Line line = colIndex.line(colNum);
+				if(null == line){
+					continue;
+				}
+				colWordNodeList.add(line.wordNodes(colNum, false));
 			}			
 		}
 		
 	}//end of Board class
 	
 	/**
-	 * Each node contains set of Board positions and the char in that node.
+	 * Letters of a BoardPosition along each row, or along each column, including
+	 * the letters of its ancestors. Immutable, a child shares every line its 
+	 * word doesn't touch with its parent. Lines are indexed by line number, and
+	 * letters by position along the line, so lookups take constant time.
+	 * Occupancy is kept as bitsets per orientation, so ranges of a line are 
+	 * checked 64 positions at a time.
 	 */
-	private static class BoardNode{
-		/**board positions and their corresponding characters, 
-		since different pos in board can overlap with diff letters.*/
-		Map<BoardPosition, Character> boardPosCharMap 
-			= new HashMap<BoardPosition, Character>();
-		Set<BoardPosition> boardPositionHorSet;
-		Set<BoardPosition> boardPositionVerSet;
-		/**membership indicates start of word (value) at this node for the BoardPosition key.
-		Used for creating final puzzle visualization.*/
-		Map<BoardPosition, String> horBoardPosWordMap = new HashMap<BoardPosition, String>();
-		Map<BoardPosition, String> verBoardPosWordMap = new HashMap<BoardPosition, String>();
-		/**distance to closest intersection, whether vertical or horizontal. Updated when
-		adding to either BoardPosWordMap.*/
-		Map<BoardPosition, Integer> distToIntersectMap = new HashMap<BoardPosition, Integer>();
-		
-		/**
-		 * @param letter_
-		 * @param boardPos First BoardPosition, associated with letter.
-		 */
-		BoardNode(char letter_, BoardPosition boardPos){
-			//this.letter = letter_;
-			this.boardPosCharMap.put(boardPos, letter_);
-			//this.boardPositionSet = new HashSet<BoardPosition>();
-			this.boardPositionHorSet = new HashSet<BoardPosition>();
-			this.boardPositionVerSet = new HashSet<BoardPosition>();
-		}
-		
-		void addBoardPosWordStart(BoardPosition boardPos, String word, WordOrientation orient){
-			if(WordOrientation.HORIZONTAL == orient){
-				horBoardPosWordMap.put(boardPos, word);
-			}else{
-				verBoardPosWordMap.put(boardPos, word);
-			}
-		}
+	static class LineIndex{
+		
+		//orientations of the words through a letter.
+		static final byte HORIZONTAL_BIT = 1;
+		static final byte VERTICAL_BIT = 2;
+		static final byte BOTH_BITS = HORIZONTAL_BIT | VERTICAL_BIT;
+		static final LineIndex EMPTY = new LineIndex(0, new Line[0]);
+		
+		//number of the line at index 0, e.g. row number in a row index.
+		private final int firstLineNum;
+		//null for lines without letters.
+		private final Line[] lineAr;
 		
 		/**
-		 * Word if the word begins at this Node, could be represented in a 
-		 * parent boardPos. 
-		 * Null if no word starts in this Node.
-		 * @param boardPosition
-		 * @param orientAr
-		 * @return Word if the word begins at this Node.
+		 * Letters along one line, from position firstPos on. Positions are grouped 
+		 * in blocks of 64, position pos is bit pos&63 of block pos>>6.
 		 */
-		String containsWordStart(BoardPosition boardPosition, WordOrientation orient){
-		
-			Map<BoardPosition, String> orientedBoardPosMap;
-			if(WordOrientation.HORIZONTAL == orient){
-				orientedBoardPosMap = this.horBoardPosWordMap;
-			}else{
-				orientedBoardPosMap = this.verBoardPosWordMap;
+		static class Line{
+			final int firstPos;
+			//0 where there is no letter.
+			final char[] letterAr;
+			//block of the bit words at index 0.
+			private final int firstBlock;
+			//positions with a letter of a horizontal, resp. vertical, word.
+			private final long[] horBitsAr;
+			private final long[] verBitsAr;
+			//WordNode's of the letters, built on first use. A Line is shared by the 
+			//positions whose words don't touch it, so they share this list too.
+			private volatile List<WordNode> wordNodeList;
+			
+			private Line(int firstPos_, char[] letterAr_, int firstBlock_, long[] horBitsAr_, 
+					long[] verBitsAr_){
+				this.firstPos = firstPos_;
+				this.letterAr = letterAr_;
+				this.firstBlock = firstBlock_;
+				this.horBitsAr = horBitsAr_;
+				this.verBitsAr = verBitsAr_;
 			}
 			
-			//check parents
-			BoardPosition parentPos = boardPosition;
-			while(null != parentPos){
-				String word = orientedBoardPosMap.get(parentPos);
-				if(null != word){
-					return word;
+			byte orientBits(int pos){
+				int i = (pos >> 6) - firstBlock;
+				if(i < 0 || i >= horBitsAr.length){
+					return 0;
 				}
-				boardPosition = parentPos;
-				parentPos = boardPosition.parentPosition;
+				return (byte)((horBitsAr[i] >>> pos & 1) | (verBitsAr[i] >>> pos & 1) << 1);
 			}
-			return null;
-		}
-		
-		/**
-		 * Adds board position to this node, along with corresponding
-		 * letter.
-		 * @param letter_
-		 * @param boardPosition
-		 */
-		void addBoardPosition(char letter_, BoardPosition boardPosition, 
-				Board board, WordOrientation orient, int row, int col){
 			
-			//intersection if this node already contains boardPosition
-			if(boardPosCharMap.containsKey(boardPosition)){
-				this.distToIntersectMap.put(boardPosition, 0);
-				//update distances in all four directions
-				updateNeighborIntersectDist(boardPosition, board, row, col);
-			}else{
-				//add to distToIntersectMap based on dist along orient direction
-				if(WordOrientation.HORIZONTAL == orient){
-					Integer nearColDist;
-					if(null != board.board[row][col-1] &&
-							(nearColDist=board.board[row][col-1].distToIntersectMap.get(boardPosition)) != null){
-						this.distToIntersectMap.put(boardPosition, nearColDist+1);
-					}else if(null != board.board[row][col+1]
-							&& (nearColDist=board.board[row][col+1].distToIntersectMap.get(boardPosition)) != null){
-						this.distToIntersectMap.put(boardPosition, nearColDist+1);
-					}else{
-						//in case of first letter in word
-						this.distToIntersectMap.put(boardPosition, Integer.MAX_VALUE);
-					}
-				}else{
-					Integer nearRowDist;
-					if(null != board.board[row-1][col]
-							&& (nearRowDist=board.board[row-1][col].distToIntersectMap.get(boardPosition)) != null){
-						this.distToIntersectMap.put(boardPosition, nearRowDist+1);
-					}else if(null != board.board[row+1][col]
-							&& (nearRowDist=board.board[row+1][col].distToIntersectMap.get(boardPosition)) != null){
-						this.distToIntersectMap.put(boardPosition, nearRowDist+1);
-					}else{
-						this.distToIntersectMap.put(boardPosition, Integer.MAX_VALUE);
+			/**
+			 * @param orientBits orientations to include, e.g. BOTH_BITS for all letters.
+			 * @return positions in block with a letter of a word with one of orientBits.
+			 */
+			long bits(int block, byte orientBits){
+				int i = block - firstBlock;
+				if(i < 0 || i >= horBitsAr.length){
+					return 0;
+				}
+				long bits = 0;
+				if(0 != (orientBits & HORIZONTAL_BIT)){
+					bits |= horBitsAr[i];
+				}
+				if(0 != (orientBits & VERTICAL_BIT)){
+					bits |= verBitsAr[i];
+				}
+				return bits;
+			}
+			
+			char letter(int pos){
+				int i = pos - firstPos;
+				return i < 0 || i >= letterAr.length ? 0 : letterAr[i];
+			}
+			
+			/**
+			 * WordNode's of the letters on this line, in increasing position. A Line
+			 * always has the same line number in the same kind of index, so the list
+			 * is only built once, and must not be modified.
+			 * @param lineNum number of this line.
+			 * @param isRow whether this line is a row, or a column.
+			 */
+			List<WordNode> wordNodes(int lineNum, boolean isRow){
+				List<WordNode> nodeList = wordNodeList;
+				if(null != nodeList){
+					return nodeList;
+				}
+				nodeList = new ArrayList<WordNode>();
+				for(int j = 0; j < letterAr.length; j++){
+					if(0 != letterAr[j]){
+						nodeList.add(isRow ? new WordNode(letterAr[j], lineNum, firstPos + j)
+								: new WordNode(letterAr[j], firstPos + j, lineNum));
 					}
 				}
+				//racing threads build equal lists, either one can be kept.
+				nodeList = Collections.unmodifiableList(nodeList);
+				wordNodeList = nodeList;
+				return nodeList;
 			}
 			
-			this.boardPosCharMap.put(boardPosition, letter_);
-			if(WordOrientation.HORIZONTAL == orient){
-				this.boardPositionHorSet.add(boardPosition);				
-			}else{
-				this.boardPositionVerSet.add(boardPosition);
+			/**
+			 * Creates line with count consecutive letters added, starting at position pos,
+			 * taken from word starting at wordStart.
+			 * @param line null if line is empty.
+			 * @return new Line.
+			 */
+			static Line withLetters(Line line, int pos, String word, int wordStart, int count, byte orientBit){
+				int lastPos = pos + count - 1;
+				int firstPos = pos;
+				if(null != line){
+					firstPos = Math.min(line.firstPos, pos);
+					lastPos = Math.max(line.firstPos + line.letterAr.length - 1, lastPos);
+				}
+				char[] letterAr = new char[lastPos - firstPos + 1];
+				int firstBlock = firstPos >> 6;
+				long[] horBitsAr = new long[(lastPos >> 6) - firstBlock + 1];
+				long[] verBitsAr = new long[horBitsAr.length];
+				if(null != line){
+					System.arraycopy(line.letterAr, 0, letterAr, line.firstPos - firstPos, line.letterAr.length);
+					System.arraycopy(line.horBitsAr, 0, horBitsAr, line.firstBlock - firstBlock, line.horBitsAr.length);
+					System.arraycopy(line.verBitsAr, 0, verBitsAr, line.firstBlock - firstBlock, line.verBitsAr.length);
+				}
+				long[] bitsAr = HORIZONTAL_BIT == orientBit ? horBitsAr : verBitsAr;
+				for(int j = 0; j < count; j++){
+					int p = pos + j;
+					letterAr[p - firstPos] = word.charAt(wordStart + j);
+					bitsAr[(p >> 6) - firstBlock] |= 1L << p;
+				}
+				return new Line(firstPos, letterAr, firstBlock, horBitsAr, verBitsAr);
 			}
-			//add or adjust dist to nearest intersection of this node.
-			//also need board to walk and figure out distance.			
+		}
+		
+		private LineIndex(int firstLineNum_, Line[] lineAr_){
+			this.firstLineNum = firstLineNum_;
+			this.lineAr = lineAr_;
+		}
+		
+		static byte orientBit(WordOrientation orient){
+			return WordOrientation.HORIZONTAL == orient ? HORIZONTAL_BIT : VERTICAL_BIT;
+		}
+		
+		int firstLineNum(){
+			return firstLineNum;
 		}
 		
 		/**
-		 * Add or update dist to nearest intersection of this node, dist
-		 * at this node is 0, since it's intersection.
-		 * @param boardPosition
-		 * @param board
-		 * @param row
-		 * @param col
+		 * @return number of lines from firstLineNum() to the last nonempty line.
 		 */
-		void updateNeighborIntersectDist(BoardPosition boardPosition, Board board, 
-				int row, int col){
-
-			//look before
-			updateNeighborIntersectDist(boardPosition, board, WordOrientation.HORIZONTAL,
-					row, col, -1);
-			//look after
-			updateNeighborIntersectDist(boardPosition, board, WordOrientation.HORIZONTAL,
-					row, col, 1);
-			
-			//look up
-			updateNeighborIntersectDist(boardPosition, board, WordOrientation.VERTICAL,
-					row, col, -1);
-			//look down
-			updateNeighborIntersectDist(boardPosition, board, WordOrientation.VERTICAL,
-					row, col, 1);
+		int lineSpan(){
+			return lineAr.length;
 		}
 		
 		/**
-		 * 
-		 * @param boardPosition
-		 * @param board
-		 * @param orient
-		 * @param row
-		 * @param col
-		 * @param toAdd amount to add each step, indicates whether going up (-1) or down (1)
-		 * (or before or after), depending on orient, resp.
+		 * @param lineNum
+		 * @return line, null if no letters on it.
 		 */
-		void updateNeighborIntersectDist(BoardPosition boardPosition, Board board, 
-				WordOrientation orient, int row, int col, int toAdd){
-			
-			final int initialDist = 1;
-			int curDist = initialDist;
-			BoardNode nearNode;
-			if(WordOrientation.HORIZONTAL == orient){
-				int curCol = col+toAdd;
-				Integer nearColDist;
-				nearNode = board.board[row][curCol];
-				while(null != nearNode && (nearColDist=nearNode.distToIntersectMap.get(boardPosition)) != null
-						&& nearColDist > curDist){					
-					nearNode.distToIntersectMap.put(boardPosition, curDist);
-					curDist++;
-					curCol += toAdd;
-					nearNode = board.board[row][curCol];
+		Line line(int lineNum){
+			int i = lineNum - firstLineNum;
+			return i < 0 || i >= lineAr.length ? null : lineAr[i];
+		}
+		
+		/**
+		 * @return orientations of the letter at pos on line lineNum, 0 if no letter.
+		 */
+		byte orientBits(int lineNum, int pos){
+			Line line = line(lineNum);
+			return null == line ? 0 : line.orientBits(pos);
+		}
+		
+		/**
+		 * @return letter at pos on line lineNum, 0 if none.
+		 */
+		char letter(int lineNum, int pos){
+			Line line = line(lineNum);
+			return null == line ? 0 : line.letter(pos);
+		}
+		
+		/**
+		 * Whether some position from fromPos to toPos, inclusive, is empty on line
+		 * lineNum, while line adjLineNum has a letter there of a word with orientation 
+		 * orientBit. Compares 64 positions per step, without allocating.
+		 */
+		boolean anyEmptyBeside(int lineNum, int adjLineNum, int fromPos, int toPos, byte orientBit){
+			Line adjLine = line(adjLineNum);
+			if(null == adjLine){
+				return false;
+			}
+			Line line = line(lineNum);
+			int fromBlock = fromPos >> 6;
+			int toBlock = toPos >> 6;
+			for(int block = fromBlock; block <= toBlock; block++){
+				long mask = -1L;
+				if(block == fromBlock){
+					mask &= -1L << fromPos;
 				}
-			}else{
-				int curRow = row+toAdd;
-				Integer nearRowDist;
-				nearNode = board.board[curRow][col];
-				while(null != nearNode && (nearRowDist=nearNode.distToIntersectMap.get(boardPosition)) != null
-						&& nearRowDist > curDist){					
-					nearNode.distToIntersectMap.put(boardPosition, curDist);
-					curDist++;
-					curRow += toAdd;
-					nearNode = board.board[curRow][col];
+				if(block == toBlock){
+					mask &= -1L >>> (63 - (toPos & 63));
+				}
+				long occupied = null == line ? 0 : line.bits(block, BOTH_BITS);
+				if(0 != (adjLine.bits(block, orientBit) & ~occupied & mask)){
+					return true;
 				}
 			}
-			
+			return false;
 		}
 		
 		/**
-		 * @param boardPosition
-		 * @return BoardPosition that's contained in this Node, could be a parent.
-		 * null if none of ancestors is contained in this Node.
+		 * Creates index with word added. Only the lines the word touches are copied.
+		 * @param word
+		 * @param lineNum line of the first letter.
+		 * @param pos position along line of the first letter.
+		 * @param alongLine whether word runs along line lineNum, or crosses
+		 * lines lineNum, lineNum+1,... at position pos.
+		 * @param orientBit orientation of the word.
+		 * @return new LineIndex.
 		 */
-		BoardPosition containsBoardPosition(BoardPosition boardPosition, WordOrientation... orientAr ){
-			int orientArLen = orientAr.length;
-			BoardPosition boardPosFound;
-			
-			if(2 == orientArLen || 0 == orientArLen){
-				if(null != (boardPosFound=
-						containsBoardPosition(boardPosition, WordOrientation.HORIZONTAL))){
-					return boardPosFound;
-				}else if(null != (boardPosFound=
-						containsBoardPosition(boardPosition, WordOrientation.VERTICAL))){
-					return boardPosFound;
+		LineIndex withWord(String word, int lineNum, int pos, boolean alongLine, byte orientBit){
+			int wordLen = word.length();
+			int lastLineNum = alongLine ? lineNum : lineNum + wordLen - 1;
+			int newFirstLineNum = lineNum;
+			int newLastLineNum = lastLineNum;
+			if(lineAr.length > 0){
+				newFirstLineNum = Math.min(firstLineNum, lineNum);
+				newLastLineNum = Math.max(firstLineNum + lineAr.length - 1, lastLineNum);
+			}
+			Line[] newLineAr = new Line[newLastLineNum - newFirstLineNum + 1];
+			System.arraycopy(lineAr, 0, newLineAr, lineAr.length > 0 ? firstLineNum - newFirstLineNum : 0, 
+					lineAr.length);
+			for(int l = lineNum; l <= lastLineNum; l++){
+				int i = l - newFirstLineNum;
+				if(alongLine){
+					newLineAr[i] = Line.withLetters(newLineAr[i], pos, word, 0, wordLen, orientBit);
+				}else{
+					newLineAr[i] = Line.withLetters(newLineAr[i], pos, word, l - lineNum, 1, orientBit);
 				}
-			}else{
-				return containsBoardPosition(boardPosition, orientAr[0]);
 			}
-			return null;
+			return new LineIndex(newFirstLineNum, newLineAr);
 		}
+	}
+	
+	/**
+	 * Words of one search, encoded once. Words are identified by their index in 
+	 * Board insertion order. For each letter, lists where it occurs in the words, 
+	 * so the words that can cross a given board letter are found without scanning.
+	 */
+	static class WordTable{
+		
+		private static final Postings EMPTY_POSTINGS = new Postings(new int[0], new int[0]);
+		
+		private final String[] wordAr;
+		private final char[][] letterAr;
+		//distinct letters in the words, sorted, and their postings.
+		private final char[] postingLetterAr;
+		private final Postings[] postingsAr;
 		
 		/**
-		 * Checks if given BoardPosition is contained in this BoardNode.
-		 * @param boardPosition
-		 * @return BoardPosition that's contained in this Node, could be a parent.
-		 * null if none of ancestors is contained in this Node.
+		 * Occurrences of one letter, ordered by word id, then by index in the word.
 		 */
-		BoardPosition containsBoardPosition(BoardPosition boardPosition, WordOrientation orient){
+		static class Postings{
+			private final int[] wordIdAr;
+			private final int[] offsetAr;
 			
-			Set<BoardPosition> orientedBoardPosSet;
-			if(WordOrientation.HORIZONTAL == orient){
-				orientedBoardPosSet = this.boardPositionHorSet;
-			}else{
-				orientedBoardPosSet = this.boardPositionVerSet;
+			private Postings(int[] wordIdAr_, int[] offsetAr_){
+				this.wordIdAr = wordIdAr_;
+				this.offsetAr = offsetAr_;
+			}
+			
+			int size(){
+				return wordIdAr.length;
 			}
-			//boardPosition use default reference equality
-			if(orientedBoardPosSet.contains(boardPosition)){
-				return boardPosition;
+			
+			int wordId(int i){
+				return wordIdAr[i];
 			}
 			
-			//check parents
-			BoardPosition parentPos = boardPosition.parentPosition;
-			while(null != parentPos){
-				if(orientedBoardPosSet.contains(parentPos)){
-					return parentPos;
+			/**
+			 * @return index of the letter in word wordId(i).
+			 */
+			int offset(int i){
+				return offsetAr[i];
+			}
+		}
+		
+		/**
+		 * @param wordsList in Board insertion order.
+		 */
+		WordTable(List<String> wordsList){
+			this.wordAr = wordsList.toArray(new String[0]);
+			this.letterAr = new char[wordAr.length][];
+			TreeMap<Character, Integer> letterCountMap = new TreeMap<Character, Integer>();
+			for(int id = 0; id < wordAr.length; id++){
+				letterAr[id] = wordAr[id].toCharArray();
+				for(char letter : letterAr[id]){
+					letterCountMap.merge(letter, 1, Integer::sum);
+				}
+			}
+			this.postingLetterAr = new char[letterCountMap.size()];
+			this.postingsAr = new Postings[letterCountMap.size()];
+			int i = 0;
+			for(Map.Entry<Character, Integer> entry : letterCountMap.entrySet()){
+				postingLetterAr[i] = entry.getKey();
+				postingsAr[i] = new Postings(new int[entry.getValue()], new int[entry.getValue()]);
+				i++;
+			}
+			int[] postingsSizeAr = new int[postingsAr.length];
+			for(int id = 0; id < wordAr.length; id++){
+				for(int j = 0; j < letterAr[id].length; j++){
+					int letterIndex = Arrays.binarySearch(postingLetterAr, letterAr[id][j]);
+					Postings postings = postingsAr[letterIndex];
+					postings.wordIdAr[postingsSizeAr[letterIndex]] = id;
+					postings.offsetAr[postingsSizeAr[letterIndex]++] = j;
+				}
+			}
+		}
+		
+		int size(){
+			return wordAr.length;
+		}
+		
+		String word(int id){
+			return wordAr[id];
+		}
+		
+		/**
+		 * @return letters of word id, not to be modified.
+		 */
+		char[] letters(int id){
+			return letterAr[id];
+		}
+		
+		/**
+		 * @return occurrences of letter in the words, empty if none.
+		 */
+		Postings postings(char letter){
+			int letterIndex = Arrays.binarySearch(postingLetterAr, letter);
+			return letterIndex < 0 ? EMPTY_POSTINGS : postingsAr[letterIndex];
+		}
+	}
+	
+	/**
+	 * Immutable set of words, as bits over the ids of a WordTable shared by all
+	 * sets derived from it. Ids follow Board insertion order, so the lowest 
+	 * id is the next longest word.
+	 */
+	static class WordSet{
+		
+		private final WordTable wordTable;
+		//bit id&63 of element id>>6 is set if word id is in the set.
+		private final long[] bitsAr;
+		private final int size;
+		
+		private WordSet(WordTable wordTable_, long[] bitsAr_, int size_){
+			this.wordTable = wordTable_;
+			this.bitsAr = bitsAr_;
+			this.size = size_;
+		}
+		
+		/**
+		 * @param wordsList in Board insertion order.
+		 * @return set of all words in wordsList.
+		 */
+		static WordSet of(List<String> wordsList){
+			WordTable wordTable = new WordTable(wordsList);
+			long[] bitsAr = new long[(wordTable.size() + 63) >> 6];
+			for(int id = 0; id < wordTable.size(); id++){
+				bitsAr[id >> 6] |= 1L << id;
+			}
+			return new WordSet(wordTable, bitsAr, wordTable.size());
+		}
+		
+		WordTable wordTable(){
+			return wordTable;
+		}
+		
+		int size(){
+			return size;
+		}
+		
+		boolean isEmpty(){
+			return 0 == size;
+		}
+		
+		boolean contains(int id){
+			return 0 != (bitsAr[id >> 6] & 1L << id);
+		}
+		
+		String word(int id){
+			return wordTable.word(id);
+		}
+		
+		/**
+		 * @return lowest id in the set, -1 if empty.
+		 */
+		int first(){
+			return next(-1);
+		}
+		
+		/**
+		 * @return lowest id in the set larger than id, -1 if none.
+		 */
+		int next(int id){
+			int from = id + 1;
+			for(int i = from >> 6; i < bitsAr.length; i++){
+				long bits = bitsAr[i];
+				if(i == from >> 6){
+					bits &= -1L << from;
+				}
+				if(0 != bits){
+					return (i << 6) + Long.numberOfTrailingZeros(bits);
 				}
-				boardPosition = parentPos;
-				parentPos = boardPosition.parentPosition;
 			}
-			return null;
+			return -1;
+		}
+		
+		/**
+		 * @return set without word id, this set is unchanged.
+		 */
+		WordSet without(int id){
+			long[] newBitsAr = bitsAr.clone();
+			newBitsAr[id >> 6] &= ~(1L << id);
+			return new WordSet(wordTable, newBitsAr, size - 1);
+		}
+		
+		/**
+		 * @return words in the set, in id order.
+		 */
+		List<String> toList(){
+			List<String> wordsList = new ArrayList<String>(size);
+			for(int id = first(); id >= 0; id = next(id)){
+				wordsList.add(wordTable.word(id));
+			}
+			return wordsList;
+		}
+		
+		/**
+		 * Sets are equal if they hold the same ids of the same WordTable.
+		 */
+		@Override
+		public boolean equals(Object other){
+			if(!(other instanceof WordSet)){
+				return false;
+			}
+			WordSet otherSet = (WordSet)other;
+			return wordTable == otherSet.wordTable && size == otherSet.size 
+					&& Arrays.equals(bitsAr, otherSet.bitsAr);
 		}
-	}//end of BoardNode class.
+		
+		@Override
+		public int hashCode(){
+			return Arrays.hashCode(bitsAr);
+		}
+		
+		@Override
+		public String toString(){
+			return toList().toString();
+		}
+	}
 	
 	/**
 	 * Board position recording the current position in the board tree.
 	 * equals and hashcode uses default reference equality.
 	 */
-	private static class BoardPosition{
+	static class BoardPosition{
 		BoardPosition parentPosition;
 		//set of words remaining for this position.
-		List<String> remainingWordsList;
+		WordSet remainingWords;
 		//used for ranking different BoardPosition's.
 		int totalWordIntersectionCount = 0;
+		//see totalIntersectDist(), -1 until first needed.
+		private int totalIntersectDist = -1;
+		//word inserted at this position, and where.
+		String word;
+		int wordRow;
+		int wordCol;
+		WordOrientation wordOrient;
+		//letters on the board, by row and by column.
+		LineIndex rowIndex = LineIndex.EMPTY;
+		LineIndex colIndex = LineIndex.EMPTY;
+		//xor of placementHash of the words placed, same for any insertion order.
+		long layoutHash;
 		
-		BoardPosition(BoardPosition parentPosition_, List<String> remainingWordsList_){
+		BoardPosition(BoardPosition parentPosition_, WordSet remainingWords_){
 			this.parentPosition = parentPosition_;
-			this.remainingWordsList = remainingWordsList_;
+			this.remainingWords = remainingWords_;
 			if(null != parentPosition_){
 				this.totalWordIntersectionCount = parentPosition_.totalWordIntersectionCount;				
 			}
 		}
 		
 		private static class WordWithWordNodes{
+			//id of word in remainingWords.
+			int wordId;
 			String word;
 			List<WordNode> wordNodesList;
 			//starting index of WordNode in word, i.e. char index in word
 			//that should be inserted at WordNode.
 			int wordStartingIndex;
 			
-			WordWithWordNodes(String word_, List<WordNode> wordNodesList_, 
+			WordWithWordNodes(int wordId_, String word_, List<WordNode> wordNodesList_, 
 					int wordStartingIndex_){
+				this.wordId = wordId_;
 				this.word = word_;
 				this.wordNodesList = wordNodesList_;
 				this.wordStartingIndex = wordStartingIndex_;
@@ -761,7 +1527,206 @@ public class Crossword {
 		}
 		
 		public String toString() {
-			return this.remainingWordsList.toString();
+			return this.remainingWords.toString();
+		}
+		
+		/**
+		 * Records the word inserted at this position, and adds it to
+		 * the parent's row and column indices.
+		 */
+		void setWord(String word_, int wordRow_, int wordCol_, WordOrientation wordOrient_){
+			this.word = word_;
+			this.wordRow = wordRow_;
+			this.wordCol = wordCol_;
+			this.wordOrient = wordOrient_;
+			boolean horizontal = WordOrientation.HORIZONTAL == wordOrient_;
+			byte orientBit = LineIndex.orientBit(wordOrient_);
+			if(null != parentPosition){
+				this.rowIndex = parentPosition.rowIndex;
+				this.colIndex = parentPosition.colIndex;
+				this.layoutHash = parentPosition.layoutHash;
+			}
+			this.layoutHash ^= placementHash(word_, wordRow_, wordCol_, wordOrient_);
+			this.rowIndex = this.rowIndex.withWord(word_, wordRow_, wordCol_, horizontal, orientBit);
+			this.colIndex = this.colIndex.withWord(word_, wordCol_, wordRow_, !horizontal, orientBit);
+		}
+		
+		/**
+		 * Number of cells of the smallest rectangle containing the letters of
+		 * this position. Constant time.
+		 */
+		int boundingBoxArea(){
+			return rowIndex.lineSpan() * colIndex.lineSpan();
+		}
+		
+		/**
+		 * Whether this position, i.e. this or an ancestor, has a letter at row, col.
+		 * Constant time.
+		 */
+		boolean containsLetter(int row, int col){
+			return 0 != rowIndex.orientBits(row, col);
+		}
+		
+		/**
+		 * Whether this position has a letter at row, col, that's part of 
+		 * a word with orientation orient. Constant time.
+		 */
+		boolean containsLetter(int row, int col, WordOrientation orient){
+			return 0 != (rowIndex.orientBits(row, col) & LineIndex.orientBit(orient));
+		}
+		
+		/**
+		 * @return letter at row, col, 0 if none.
+		 */
+		char letterAt(int row, int col){
+			return rowIndex.letter(row, col);
+		}
+		
+		/**
+		 * Sum over the letters of this position's word of the distance along the 
+		 * word to the nearest letter it shares with a crossing word. Used for 
+		 * ranking, smaller is better. Computed from the row index on first use, 
+		 * so only positions that get ranked pay for it.
+		 * @return total distance, 0 if the word crosses none.
+		 */
+		int totalIntersectDist(){
+			if(totalIntersectDist < 0){
+				totalIntersectDist = computeTotalIntersectDist();
+			}
+			return totalIntersectDist;
+		}
+		
+		private int computeTotalIntersectDist(){
+			if(null == word){
+				return 0;
+			}
+			int wordLen = word.length();
+			int rowStep = WordOrientation.HORIZONTAL == wordOrient ? 0 : 1;
+			int colStep = 1 - rowStep;
+			//distance to the nearest intersection before each letter, then after it.
+			int[] distAr = new int[wordLen];
+			int lastIntersect = -1;
+			for(int i = 0; i < wordLen; i++){
+				if(LineIndex.BOTH_BITS == rowIndex.orientBits(wordRow + i*rowStep, wordCol + i*colStep)){
+					lastIntersect = i;
+				}
+				distAr[i] = lastIntersect < 0 ? Integer.MAX_VALUE : i - lastIntersect;
+			}
+			if(lastIntersect < 0){
+				return 0;
+			}
+			int totalDist = 0;
+			int nextIntersect = lastIntersect;
+			for(int i = wordLen - 1; i >= 0; i--){
+				if(0 == distAr[i]){
+					nextIntersect = i;
+				}
+				totalDist += i > nextIntersect ? distAr[i] : Math.min(distAr[i], nextIntersect - i);
+			}
+			return totalDist;
+		}
+		
+		/**
+		 * Child with no word of its own, to continue the search from this 
+		 * position with different remaining words.
+		 * @param remainingWords_
+		 */
+		BoardPosition continuation(WordSet remainingWords_){
+			BoardPosition boardPos = new BoardPosition(this, remainingWords_);
+			boardPos.rowIndex = this.rowIndex;
+			boardPos.colIndex = this.colIndex;
+			boardPos.layoutHash = this.layoutHash;
+			return boardPos;
+		}
+		
+		/**
+		 * Position with only this one's word placement, parent and layoutHash, 
+		 * enough for sameLayout, without the letter indices.
+		 */
+		BoardPosition placementOnly(){
+			BoardPosition boardPos = new BoardPosition(parentPosition, remainingWords);
+			boardPos.word = this.word;
+			boardPos.wordRow = this.wordRow;
+			boardPos.wordCol = this.wordCol;
+			boardPos.wordOrient = this.wordOrient;
+			boardPos.layoutHash = this.layoutHash;
+			return boardPos;
+		}
+		
+		/**
+		 * Zobrist-style key of one word placement, mixed so that xor-ing keys 
+		 * of different placements rarely collides.
+		 */
+		static long placementHash(String word, int row, int col, WordOrientation orient){
+			long h = word.hashCode() * 0x9E3779B97F4A7C15L ^ cellKey(row, col) * 0xC2B2AE3D27D4EB4FL 
+					^ (orient.ordinal() + 1);
+			//splitmix64 finalizer
+			h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+			h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+			return h ^ (h >>> 31);
+		}
+		
+		/**
+		 * Whether other has the same words placed at the same cells and 
+		 * orientations, in any order. To rule out layoutHash collisions.
+		 */
+		boolean sameLayout(BoardPosition other){
+			if(layoutHash != other.layoutHash){
+				return false;
+			}
+			//words are distinct within a position.
+			Map<String, BoardPosition> placementMap = new HashMap<String, BoardPosition>();
+			for(BoardPosition boardPos = this; null != boardPos; boardPos = boardPos.parentPosition){
+				if(null != boardPos.word){
+					placementMap.put(boardPos.word, boardPos);
+				}
+			}
+			int otherWordCount = 0;
+			for(BoardPosition boardPos = other; null != boardPos; boardPos = boardPos.parentPosition){
+				if(null == boardPos.word){
+					continue;
+				}
+				BoardPosition samePos = placementMap.get(boardPos.word);
+				if(null == samePos || samePos.wordRow != boardPos.wordRow || samePos.wordCol != boardPos.wordCol
+						|| samePos.wordOrient != boardPos.wordOrient){
+					return false;
+				}
+				otherWordCount++;
+			}
+			return otherWordCount == placementMap.size();
+		}
+		
+		/**
+		 * @return words placed on the board in this position.
+		 */
+		Set<String> placedWords(){
+			Set<String> placedWordsSet = new HashSet<String>();
+			BoardPosition boardPos = this;
+			while(null != boardPos){
+				if(null != boardPos.word){
+					placedWordsSet.add(boardPos.word);
+				}
+				boardPos = boardPos.parentPosition;
+			}
+			return placedWordsSet;
+		}
+		
+		/**
+		 * Words of given orientation in this position, keyed by cellKey of their
+		 * first letters. Used for creating final puzzle visualization.
+		 * @param orient
+		 * @return
+		 */
+		Map<Long, String> wordStartMap(WordOrientation orient){
+			Map<Long, String> wordStartMap = new HashMap<Long, String>();
+			BoardPosition boardPos = this;
+			while(null != boardPos){
+				if(orient == boardPos.wordOrient){
+					wordStartMap.put(cellKey(boardPos.wordRow, boardPos.wordCol), boardPos.word);
+				}
+				boardPos = boardPos.parentPosition;
+			}
+			return wordStartMap;
 		}
 		
 		/**
@@ -774,16 +1739,23 @@ public class Crossword {
 		 */
 		public List<BoardPosition> findLegalWordInsertion(List<List<WordNode>> rowWordNodeList, 
 				List<List<WordNode>> colWordNodeList, Board board){
+			return findLegalWordInsertion(rowWordNodeList, colWordNodeList, board, new ExpansionCounts(false));
+		}
+		
+		/**
+		 * Same as above, also counts the candidates tried.
+		 * @param counts counts of the calling thread.
+		 */
+		List<BoardPosition> findLegalWordInsertion(List<List<WordNode>> rowWordNodeList, 
+				List<List<WordNode>> colWordNodeList, Board board, ExpansionCounts counts){
 			//keys are number of intersections, values are words and that intersection set
 			TreeMap<Integer, List<WordWithWordNodes>> tMap = new TreeMap<Integer, List<WordWithWordNodes>>();
 			
-			int horizontalMax = getMultiIntersectWords(board, rowWordNodeList, tMap, WordOrientation.HORIZONTAL);
+			int horizontalMax = getMultiIntersectWords(board, rowWordNodeList, tMap, WordOrientation.HORIZONTAL, counts);
 			
 			//check columns			
 			TreeMap<Integer, List<WordWithWordNodes>> colTMap = new TreeMap<Integer, List<WordWithWordNodes>>();
-			int verticalMax = getMultiIntersectWords(board, colWordNodeList, colTMap, WordOrientation.VERTICAL);
-			System.out.println("verticalMax "+verticalMax);
-			System.out.println("colTMap "+colTMap);
+			int verticalMax = getMultiIntersectWords(board, colWordNodeList, colTMap, WordOrientation.VERTICAL, counts);
 			
 			List<BoardPosition> childrenBoardPositionList = new ArrayList<BoardPosition>();
 			WordOrientation orient = horizontalMax > verticalMax ? WordOrientation.HORIZONTAL
@@ -802,18 +1774,18 @@ public class Crossword {
 				addWordNodes(board, childrenBoardPositionList, WordOrientation.VERTICAL, colTMap);
 			}
 			else{
-				/*add single-intersection word, only consider next longest word*/
+				/*add single-intersection word, only consider next longest word that fits
+				 either way, words that fit nowhere are deferred*/
 				//WordWithWordNodes list to record the positions filled
 				List<WordWithWordNodes> wordWithWordNodesHorList = new ArrayList<WordWithWordNodes>();
 				List<WordWithWordNodes> wordWithWordNodesVerList = new ArrayList<WordWithWordNodes>();
-				getSingleIntersectionWords(board, rowWordNodeList,
-						wordWithWordNodesHorList, WordOrientation.HORIZONTAL);
-				getSingleIntersectionWords(board, colWordNodeList,
-						wordWithWordNodesVerList, WordOrientation.VERTICAL);
-				
-				/*if(!wordWithWordNodesHorList.isEmpty() || !wordWithWordNodesVerList.isEmpty()){
-					this.remainingWordsList.remove(0);
-				}*/
+				for(int wordId = remainingWords.first(); wordId >= 0 && wordWithWordNodesHorList.isEmpty()
+						&& wordWithWordNodesVerList.isEmpty(); wordId = remainingWords.next(wordId)){
+					getSingleIntersectionWords(board, rowWordNodeList,
+							wordWithWordNodesHorList, WordOrientation.HORIZONTAL, wordId, counts);
+					getSingleIntersectionWords(board, colWordNodeList,
+							wordWithWordNodesVerList, WordOrientation.VERTICAL, wordId, counts);
+				}
 				//add one horizontally, one vertically
 				int intersectionCount = 1;
 				addWordNodesFromList(board, childrenBoardPositionList, WordOrientation.HORIZONTAL, 
@@ -865,27 +1837,30 @@ public class Crossword {
 				}else{
 					startingRow -= startingIndex;
 				}
-				//this.remainingWordsList.remove(word);
-				List<String> childRemainingWordsList = new ArrayList<String>(this.remainingWordsList);
-				childRemainingWordsList.remove(word);
-				BoardPosition boardPos = new BoardPosition(this, childRemainingWordsList);
-				board.insertWord(word, startingRow, startingCol, orient, boardPos);					
+				BoardPosition boardPos = new BoardPosition(this, 
+						this.remainingWords.without(wordWithWordNodes.wordId));
+				//board inserts it once all leaves of this level are expanded.
+				boardPos.setWord(word, startingRow, startingCol, orient);
 				childrenBoardPositionList.add(boardPos);
 			}
 		}
-		//orient is the orientation of word to be added
+		/**
+		 * Finds the first place word wordId fits with a single intersection.
+		 * @param orient orientation of word to be added
+		 * @param wordId id in remainingWords.
+		 */
 		private void getSingleIntersectionWords(Board board, List<List<WordNode>> rowWordNodeList,
 				List<WordWithWordNodes> wordWithWordNodesList,
-				WordOrientation orient) {
+				WordOrientation orient, int wordId, ExpansionCounts counts) {
 			
-			String nextLongestWord = this.remainingWordsList.get(0);					
-			char[] wordCharAr = nextLongestWord.toCharArray();
+			String nextLongestWord = this.remainingWords.word(wordId);
+			char[] wordCharAr = this.remainingWords.wordTable().letters(wordId);
 			int wordCharArLen = wordCharAr.length;
 			
 			for(List<WordNode> wordNodeList: rowWordNodeList){
 				//a row
 				//space to prior word
-				int prevSpace = 100;				
+				int prevSpace = OPEN_SPACE;				
 				for(int i = 0; i < wordNodeList.size(); i++){
 					//check for two or more intersections first
 					WordNode wordNode = wordNodeList.get(i);
@@ -899,12 +1874,12 @@ public class Crossword {
 						//int nextColNum = nextWordNode.col;
 						//int colDiff = nextColNum - colNum;
 						postSpace = i == wordNodeList.size()-1 
-								? 100 : wordNodeList.get(i+1).col - boardNodeColNum;						
+								? OPEN_SPACE : wordNodeList.get(i+1).col - boardNodeColNum;						
 					}else{
 						//int rowNum = wordNode.row;
 						//colOrRowAbove = rowNum - 1;
 						postSpace = i == wordNodeList.size()-1 
-								? 100 : wordNodeList.get(i+1).row - boardNodeRowNum;
+								? OPEN_SPACE : wordNodeList.get(i+1).row - boardNodeRowNum;
 					}
 					char wordNodeChar = wordNode.letter;
 					
@@ -913,7 +1888,7 @@ public class Crossword {
 						if(curChar != wordNodeChar) {
 							continue;
 						}
-						//System.out.println("curChar, wordNodeChar "+curChar + ", "+ wordNodeChar);
+						counts.candidatesTried++;
 
 						int firstLetterRow;
 						int firstLetterCol;
@@ -949,7 +1924,6 @@ public class Crossword {
 							colOrRowAboveCol = boardNodeColNum - 1;
 						}*/
 												
-						BoardNode colOrRowPerpNode = board.board[colOrRowPerpRow][colOrRowPerpCol];
 						//If this intersection position is first char in the word to be inserted. if vertical insertion, same
 						//if same row; if horizontal, same if same column. This is so that e.g. {"ab","bc"} are recorded properly,
 						//without the 'a' in front of b being a hindrance because of board position containment.
@@ -957,9 +1931,8 @@ public class Crossword {
 						
 						//avoid e.g. playarn for "play" and "yarn". I.e contiguous, could be above row (if vertical) or
 						//column to left, if horizontal.
-						BoardNode colOrRowParallelNode = board
-								.board[WordOrientation.HORIZONTAL == orient ? firstLetterRow : firstLetterRow-1]
-										[WordOrientation.HORIZONTAL == orient ? firstLetterCol-1 : firstLetterCol];
+						int colOrRowParallelRow = WordOrientation.HORIZONTAL == orient ? firstLetterRow : firstLetterRow-1;
+						int colOrRowParallelCol = WordOrientation.HORIZONTAL == orient ? firstLetterCol-1 : firstLetterCol;
 						
 						if(prevSpace > j 
 									&& curChar == wordNodeChar
@@ -969,12 +1942,8 @@ public class Crossword {
 									//check the top of the would-be starting point
 									///*
 									&& (firstCharInsert || 
-											null == colOrRowPerpNode
-										|| null == colOrRowPerpNode
-										.containsBoardPosition(this, orient.getOpposite()))
-									&& (null == colOrRowParallelNode
-										|| null == colOrRowParallelNode
-										.containsBoardPosition(this, orient))
+										!containsLetter(colOrRowPerpRow, colOrRowPerpCol, orient.getOpposite()))
+									&& !containsLetter(colOrRowParallelRow, colOrRowParallelCol, orient)
 									&& checkWordBody(board, firstLetterRow, firstLetterCol, 
 											lastLetterRow, lastLetterCol, orient)
 									//around the last letter
@@ -985,10 +1954,10 @@ public class Crossword {
 								curWordNodeList.add(wordNode);
 								
 								wordWithWordNodesList
-									.add(new WordWithWordNodes(nextLongestWord, curWordNodeList, j));
+									.add(new WordWithWordNodes(wordId, nextLongestWord, curWordNodeList, j));
 								
 								this.totalWordIntersectionCount++;
-								System.out.println("this.totalWordIntersectionCount "+this.totalWordIntersectionCount);
+								counts.candidatesAccepted++;
 								//only add the first suitable place for one-intersection words.
 								return;
 							}							
@@ -997,79 +1966,24 @@ public class Crossword {
 					prevSpace = postSpace;					
 				}
 			}
-			if(wordWithWordNodesList.isEmpty()){
-				//A better way than just deferring the word?
-				if(this.remainingWordsList.size() > 1){
-					this.remainingWordsList.remove(0);
-					this.remainingWordsList.add(1, nextLongestWord);					
-				}else if(this.remainingWordsList.size() == 1){
-					//have size one in this case.
-					//last word doesn't fit, put on board at some place
-					/*if(WordOrientation.VERTICAL == orient){
-						String lastWord = this.remainingWordsList.get(0);
-						int startingPos = BOARD_LEN/2 - BOARD_LEN/3;
-						board.insertWord(lastWord, startingPos, 
-								startingPos, orient, this);
-						this.remainingWordsList.clear();
-						//don't delete this comment yet!
-					}*/
-					String lastWord = this.remainingWordsList.get(0);
-					System.out.println("Crossword - last word didn't fit "+lastWord);
-					//this.remainingWordsList.clear();
-				}				
-			}
-			//return horizontalMax;
 		}
 
+		/**
+		 * Checks the letters of the word. An empty cell the word would fill must not 
+		 * have a letter of a vertical word above it, if horizontal, or of a horizontal
+		 * word to its left, if vertical. Done on the occupancy bitsets of the word's 
+		 * row, or column, and the one before it.
+		 * @return True if no word conflicts around the letters.
+		 */
 		private boolean checkWordBody(Board board, int firstLetterRow, int firstLetterCol, 
 				int lastLetterRow, int lastLetterCol,
 				WordOrientation orient) {
-			boolean freeAroundLetter = true;
-			if(WordOrientation.HORIZONTAL == orient){
-				for(int curCol = firstLetterCol; freeAroundLetter && curCol <= lastLetterCol; curCol++){
-					freeAroundLetter = freeAroundLetter && 
-							checkAroundBodyLetter(board, orient, firstLetterRow, curCol);
-				}
-			}else{
-				for(int curRow = firstLetterRow; freeAroundLetter && curRow <= lastLetterRow; curRow++){
-					freeAroundLetter = freeAroundLetter && 
-							checkAroundBodyLetter(board, orient, curRow, firstLetterCol);
-				}
-			}
-			return freeAroundLetter;
-		}
-
-		/**
-		 * Check around a letter that's in middle of the word, excluding
-		 * first and last letters.
-		 * @param board
-		 * @param orient
-		 * @param letterRow
-		 * @param letterCol
-		 * @return True if no word conflicts around last letter. 
-		 */
-		private boolean checkAroundBodyLetter(Board board, WordOrientation orient, int letterRow, int letterCol) {
-			boolean freeAroundLetter = true;
-			BoardNode lastLetterNode = board.board[letterRow][letterCol];
-			if(null != lastLetterNode && null != lastLetterNode.containsBoardPosition(this)){
-				return true;
-			}
 			if(WordOrientation.HORIZONTAL == orient){
-				//BoardNode lastLetterRightNode = board.board[letterRow][letterCol+1];
-				//ensure the letter above is not end of a vertical word
-				BoardNode lastLetterUpNode = board.board[letterRow-1][letterCol];
-				freeAroundLetter = null == lastLetterUpNode ||
-						null == lastLetterUpNode.containsBoardPosition(this, WordOrientation.VERTICAL);
-											
-			}else{
-				//ensure the letter above is not end of a vertical word
-				BoardNode lastLetterLeftNode = board.board[letterRow][letterCol-1];
-				//only check if current node last letter is free, so the previous Node is conclusion of a word.
-				freeAroundLetter = null == lastLetterLeftNode ||
-						null == lastLetterLeftNode.containsBoardPosition(this, WordOrientation.HORIZONTAL);
-				
+				return !rowIndex.anyEmptyBeside(firstLetterRow, firstLetterRow-1, 
+						firstLetterCol, lastLetterCol, LineIndex.VERTICAL_BIT);
 			}
-			return freeAroundLetter;
+			return !colIndex.anyEmptyBeside(firstLetterCol, firstLetterCol-1, 
+					firstLetterRow, lastLetterRow, LineIndex.HORIZONTAL_BIT);
 		}
 		
 		/**
@@ -1082,29 +1996,20 @@ public class Crossword {
 		 */
 		private boolean checkAroundLastLetter(Board board, WordOrientation orient, int lastLetterRow, int lastLetterCol) {
 			boolean freeAroundLastLetter = true;
-			BoardNode lastLetterNode = board.board[lastLetterRow][lastLetterCol];
-			if(null != lastLetterNode && null != lastLetterNode.containsBoardPosition(this)){
+			if(containsLetter(lastLetterRow, lastLetterCol)){
 				return true;
 			}
 			if(WordOrientation.HORIZONTAL == orient){
-				BoardNode lastLetterRightNode = board.board[lastLetterRow][lastLetterCol+1];
-				freeAroundLastLetter = null == lastLetterRightNode ||
-						null == lastLetterRightNode.containsBoardPosition(this);
+				freeAroundLastLetter = !containsLetter(lastLetterRow, lastLetterCol+1);
 				if(freeAroundLastLetter){
-					BoardNode lastLetterUpNode = board.board[lastLetterRow-1][lastLetterCol];
-					freeAroundLastLetter = null == lastLetterUpNode ||
-							null == lastLetterUpNode.containsBoardPosition(this, WordOrientation.VERTICAL);
+					freeAroundLastLetter = !containsLetter(lastLetterRow-1, lastLetterCol, WordOrientation.VERTICAL);
 				}							
 			}else{
-				BoardNode lastLetterLeftNode = board.board[lastLetterRow][lastLetterCol-1];
 				//only check if current node last letter is free, so the previous Node is conclusion of a word.
-				freeAroundLastLetter = null == lastLetterLeftNode ||
-						null == lastLetterLeftNode.containsBoardPosition(this, WordOrientation.HORIZONTAL);
+				freeAroundLastLetter = !containsLetter(lastLetterRow, lastLetterCol-1, WordOrientation.HORIZONTAL);
 					
 				if(freeAroundLastLetter){
-					BoardNode lastLetterDownNode = board.board[lastLetterRow+1][lastLetterCol];
-					freeAroundLastLetter = null == lastLetterDownNode ||
-							null == lastLetterDownNode.containsBoardPosition(this);
+					freeAroundLastLetter = !containsLetter(lastLetterRow+1, lastLetterCol);
 				}
 			}
 			return freeAroundLastLetter;
@@ -1115,13 +2020,15 @@ public class Crossword {
 		 * @param tMap
 		 */
 		private int getMultiIntersectWords(Board board, List<List<WordNode>> rowWordNodeList,
-				TreeMap<Integer, List<WordWithWordNodes>> tMap, WordOrientation orient) {
+				TreeMap<Integer, List<WordWithWordNodes>> tMap, WordOrientation orient, 
+				ExpansionCounts counts) {
 			
+			WordTable wordTable = remainingWords.wordTable();
 			int horizontalMax = 0;
 			for(List<WordNode> wordNodeList: rowWordNodeList){
 				//a row
 				//space to prior word
-				int prevSpace = 100;				
+				int prevSpace = OPEN_SPACE;				
 				for(int i = 0; i < wordNodeList.size()-1; i++){
 					//check for two or more intersections first
 					WordNode wordNode = wordNodeList.get(i);
@@ -1145,90 +2052,91 @@ public class Crossword {
 					char wordNodeChar = wordNode.letter;
 					char nextWordNodeChar = nextWordNode.letter;
 					//int postSpace = 0     ;
-					//look over all remaining words
-					for(String word : remainingWordsList){
-						char[] wordCharAr = word.toCharArray();
+					//look over the remaining words with letter wordNodeChar, 
+					//j is the index of the letter in the word.
+					WordTable.Postings postings = wordTable.postings(wordNodeChar);
+					for(int p = 0; p < postings.size(); p++){
+						int wordId = postings.wordId(p);
+						if(!remainingWords.contains(wordId)){
+							continue;
+						}
+						String word = wordTable.word(wordId);
+						char[] wordCharAr = wordTable.letters(wordId);
 						int wordCharArLen = wordCharAr.length;
+						int j = postings.offset(p);
+						char curChar = wordCharAr[j];
+						counts.candidatesTried++;
 						
-						for(int j = 0; j < wordCharArLen; j++){
-							char curChar = wordCharAr[j];
-							if(curChar != wordNodeChar) {
-								continue;
-							}
+						int firstLetterRow;
+						int firstLetterCol;
+						int lastLetterRow;
+						int lastLetterCol;
+						//to ensure the top or left of starting word isn't
+						//the end of another word with same BoardPosition.							
+						int colOrRowAboveRow;
+						int colOrRowAboveCol;
+						if(WordOrientation.HORIZONTAL == orient){
+							firstLetterRow = boardNodeRowNum;
+							firstLetterCol = boardNodeColNum - j;
+							colOrRowAboveRow = firstLetterRow - 1;
+							colOrRowAboveCol = firstLetterCol;
+							lastLetterRow = boardNodeRowNum;
+							lastLetterCol = boardNodeColNum + wordCharArLen - (j+1);
+						}else{
+							firstLetterRow = boardNodeRowNum - j;
+							firstLetterCol = boardNodeColNum;
+							colOrRowAboveRow = firstLetterRow;
+							colOrRowAboveCol = firstLetterCol - 1;
+							lastLetterRow = boardNodeRowNum + wordCharArLen - (j+1);
+							lastLetterCol = boardNodeColNum;
+						}
+						//If this intersection position is first char in the word to be inserted. if vertical insertion, same
+						//if same row; if horizontal, same if same column. This is so that e.g. {"ab","bc"} are recorded properly,
+						//without the 'a' in front of b being a hindrance because of board position containment.
+						boolean firstCharInsert = j == 0;
+						//avoid e.g. playarn for "play" and "yarn"
+						int colOrRowParallelRow = WordOrientation.HORIZONTAL == orient ? firstLetterRow : firstLetterRow-1;
+						int colOrRowParallelCol = WordOrientation.HORIZONTAL == orient ? firstLetterCol-1 : firstLetterCol;
+						
+						int intersectionCount;
+						if(prevSpace > j
+								&& curChar == wordNodeChar
+								&& j + colDiff < wordCharAr.length 
+								&& wordCharAr[j+colDiff] == nextWordNodeChar
+								///*
+								&& (firstCharInsert || 
+										!containsLetter(colOrRowAboveRow, colOrRowAboveCol, orient.getOpposite()))
+								//*/
+								&& !containsLetter(colOrRowParallelRow, colOrRowParallelCol, orient)
+								&& checkWordBody(board, firstLetterRow, firstLetterCol, 
+										lastLetterRow, lastLetterCol, orient)
+								&& checkAroundLastLetter(board, orient, lastLetterRow, lastLetterCol)
+								//check the word fits wrt remaining words
+								&& (intersectionCount = remainingWordFits(wordCharAr, j+colDiff, 
+										wordNodeList, i+1, orient))>0){
+							
+							//add previous two intersection
+							List<WordNode> curWordNodeList = new ArrayList<WordNode>();
+							curWordNodeList.add(wordNode);
+							curWordNodeList.add(nextWordNode);
 							
-							int firstLetterRow;
-							int firstLetterCol;
-							int lastLetterRow;
-							int lastLetterCol;
-							//to ensure the top or left of starting word isn't
-							//the end of another word with same BoardPosition.							
-							int colOrRowAboveRow;
-							int colOrRowAboveCol;
-							if(WordOrientation.HORIZONTAL == orient){
-								firstLetterRow = boardNodeRowNum;
-								firstLetterCol = boardNodeColNum - j;
-								colOrRowAboveRow = firstLetterRow - 1;
-								colOrRowAboveCol = firstLetterCol;
-								lastLetterRow = boardNodeRowNum;
-								lastLetterCol = boardNodeColNum + wordCharArLen - (j+1);
-							}else{
-								firstLetterRow = boardNodeRowNum - j;
-								firstLetterCol = boardNodeColNum;
-								colOrRowAboveRow = firstLetterRow;
-								colOrRowAboveCol = firstLetterCol - 1;
-								lastLetterRow = boardNodeRowNum + wordCharArLen - (j+1);
-								lastLetterCol = boardNodeColNum;
+							for(int k = 0; k < intersectionCount; k++){
+								curWordNodeList.add(wordNodeList.get(i+k+2));
 							}
-							BoardNode colOrRowPerpNode = board.board[colOrRowAboveRow][colOrRowAboveCol];
-							//If this intersection position is first char in the word to be inserted. if vertical insertion, same
-							//if same row; if horizontal, same if same column. This is so that e.g. {"ab","bc"} are recorded properly,
-							//without the 'a' in front of b being a hindrance because of board position containment.
-							boolean firstCharInsert = j == 0;
-							//avoid e.g. playarn for "play" and "yarn"
-							BoardNode colOrRowParallelNode = board
-									.board[WordOrientation.HORIZONTAL == orient ? firstLetterRow : firstLetterRow-1]
-											[WordOrientation.HORIZONTAL == orient ? firstLetterCol-1 : firstLetterCol];
+							int key = intersectionCount + 2;
+							this.totalWordIntersectionCount += key;
+							counts.candidatesAccepted++;
 							
-							int intersectionCount;
-							if(prevSpace > j
-									&& curChar == wordNodeChar
-									&& j + colDiff < wordCharAr.length 
-									&& wordCharAr[j+colDiff] == nextWordNodeChar
-									///*
-									&& (firstCharInsert || null == colOrRowPerpNode || 
-											null == colOrRowPerpNode.containsBoardPosition(this, orient.getOpposite()))
-									//*/
-									&& (null == colOrRowParallelNode ||
-											null == colOrRowParallelNode.containsBoardPosition(this, orient))
-									&& checkWordBody(board, firstLetterRow, firstLetterCol, 
-											lastLetterRow, lastLetterCol, orient)
-									&& checkAroundLastLetter(board, orient, lastLetterRow, lastLetterCol)
-									//check the word fits wrt remaining words
-									&& (intersectionCount = remainingWordFits(wordCharAr, j+colDiff, 
-											wordNodeList, i+1, orient))>0){
-								
-								//add previous two intersection
-								List<WordNode> curWordNodeList = new ArrayList<WordNode>();
-								curWordNodeList.add(wordNode);
-								curWordNodeList.add(nextWordNode);
-								
-								for(int k = 0; k < intersectionCount; k++){
-									curWordNodeList.add(wordNodeList.get(i+k+2));
-								}
-								int key = intersectionCount + 2;
-								this.totalWordIntersectionCount += key;
-								
-								if(key > horizontalMax){
-									horizontalMax = key;
-								}
-								List<WordWithWordNodes> list = tMap.get(key);
-								if(null == list){
-									list = new ArrayList<WordWithWordNodes>();									
-								}
-								list.add(new WordWithWordNodes(word, curWordNodeList, j));
-								tMap.put(key, list);
-							}							
-						}						
+							if(key > horizontalMax){
+								horizontalMax = key;
+							}
+							List<WordWithWordNodes> list = tMap.get(key);
+							if(null == list){
+								list = new ArrayList<WordWithWordNodes>();									
+							}
+							list.add(new WordWithWordNodes(wordId, word, curWordNodeList, j));
+							tMap.put(key, list);
+						}							
 					}
 					prevSpace = colDiff;					
 				}
@@ -1283,7 +2191,6 @@ public class Crossword {
 			//these sets are sorted.
 			Set<Integer> rowSet = board.rowSet;
 			List<Integer> colList = new ArrayList<Integer>(board.colSet);
-			BoardNode[][] boardNodeAr = board.board;
 			
 			int firstCol = colList.get(0);
 			int colListSz = colList.size();
@@ -1295,9 +2202,7 @@ public class Crossword {
 				//go through all applicable rows in a column
 				//boolean curColContains = false;
 				for(int curRow : rowSet){
-					BoardNode curNode = boardNodeAr[curRow][colList.get(curColIndex)];
-					if(null != curNode
-							&& null != curNode.containsBoardPosition(this)){
+					if(containsLetter(curRow, colList.get(curColIndex))){
 						//curColContains = true;
 						curColIndex--;
 						continue colLoop;
@@ -1317,9 +2222,7 @@ public class Crossword {
 				//go through all applicable rows in a column
 				//boolean curColContains = false;
 				for(int curRow : rowSet){
-					BoardNode curNode = boardNodeAr[curRow][colList.get(curColIndex)];
-					if(null != curNode
-							&& null != curNode.containsBoardPosition(this)){
+					if(containsLetter(curRow, colList.get(curColIndex))){
 						//curColContains = true;
 						lastCol = colList.get(curColIndex);
 						curColIndex++;
@@ -1339,10 +2242,19 @@ public class Crossword {
 		
 	}/*end of BoardPosition class*/
 	
-	private static class WordComparator implements Comparator<String>{
-		//long words come first
+	/**
+	 * Key of the cell at row, col, e.g. for maps of cells.
+	 */
+	static long cellKey(int row, int col){
+		return ((long)row << 32) | (col & 0xffffffffL);
+	}
+	
+	static class WordComparator implements Comparator<String>{
+		//long words come first, words of same length alphabetically, so the 
+		//order doesn't depend on the input order.
 		public int compare(String word1, String word2){			
-			return word1.length() < word2.length() ? 1 : (word1.length() > word2.length() ? -1 : 0);
+			return word1.length() < word2.length() ? 1 : (word1.length() > word2.length() ? -1 
+					: word1.compareTo(word2));
 		}
 	}
 	
@@ -1376,6 +2288,17 @@ public class Crossword {
 			}
 		}
 		
+		PuzzleNodeCoordinates(int row_, int col_, char label_, String rowWord_, String rowHint_,
+				String colWord_, String colHint_){
+			this.row = row_;
+			this.col = col_;
+			this.label = label_;
+			this.rowWord = rowWord_;
+			this.rowHint = rowHint_;
+			this.colWord = colWord_;
+			this.colHint = colHint_;
+		}
+		
 		@Override
 		public String toString(){
 			StringBuilder sb = new StringBuilder("{(" +row + ", " + col + ") ");
@@ -1464,63 +2387,1519 @@ public class Crossword {
 	}
 	
 	/**
-	 * Takes list of words, create crossword puzzle from it.
-	 * 
-	 * @param wordsList comma-separated words and hints, alternating
-	 * word0,hint0,word1,hint1,...
+	 * Puzzle in flat arrays, for serializing without walking an object per 
+	 * cell. Cells are the white squares, in the order of the PuzzleNodeCoordinates 
+	 * list. Slots are the words, in order of their first cell, across before down.
+	 * Arrays are not copied, and are not to be modified.
 	 */
-	public static List<PuzzleNodeCoordinates> processSet(List<String> wordsList){
+	public static class CompactPuzzle{
 		
-		logger.info("processSet wordsList "+wordsList);
-		if(wordsList.isEmpty()){
-			return Collections.emptyList();
+		//magic number and version of the binary form.
+		private static final int BINARY_MAGIC = 0x43575A01;
+		static final byte ACROSS = 0;
+		static final byte DOWN = 1;
+		//grid entry of black squares, and how JSON writes them.
+		static final char BLACK_SQUARE = 0;
+		private static final char JSON_BLACK_SQUARE = '#';
+		//puzzle without cells.
+		static final CompactPuzzle EMPTY = new CompactPuzzle(0, 0, new char[0], new int[0], new char[0], 
+				new int[0], new char[0], new String[0], new String[0]);
+		
+		private final int rowCount;
+		private final int colCount;
+		//letters, row by row, BLACK_SQUARE if none.
+		private final char[] gridAr;
+		//row and column of each cell, alternating.
+		private final int[] cellAr;
+		//label of each cell, ' ' if none.
+		private final char[] cellLabelAr;
+		//row, column and ACROSS or DOWN of each slot's first letter.
+		private final int[] slotAr;
+		private final char[] slotLabelAr;
+		private final String[] slotWordAr;
+		//null where a word has no hint.
+		private final String[] slotHintAr;
+		
+		private CompactPuzzle(int rowCount_, int colCount_, char[] gridAr_, int[] cellAr_, 
+				char[] cellLabelAr_, int[] slotAr_, char[] slotLabelAr_, String[] slotWordAr_, 
+				String[] slotHintAr_){
+			this.rowCount = rowCount_;
+			this.colCount = colCount_;
+			this.gridAr = gridAr_;
+			this.cellAr = cellAr_;
+			this.cellLabelAr = cellLabelAr_;
+			this.slotAr = slotAr_;
+			this.slotLabelAr = slotLabelAr_;
+			this.slotWordAr = slotWordAr_;
+			this.slotHintAr = slotHintAr_;
 		}
-		//build word-to-hint map.
-		Map<String, String> wordHintsMap = new HashMap<String, String>();
-		wordsList = buildWordHintsMap(wordsList, wordHintsMap);
 		
-		//remove duplicates
-		wordsList = new ArrayList<String>(new HashSet<String>(wordsList));
-		Collections.sort(wordsList, new WordComparator());
-		String firstWord = wordsList.get(0);
-		wordsList.remove(0);
-		Board board = new Board(firstWord, wordsList);
-		//More optimal BoardPositions appear later in List.
-		List<BoardPosition> satBoardPosList = board.build();
+		/**
+		 * Lays out boardPos as a puzzle, straight from its letters. Rows are numbered
+		 * from the first row of the board, columns from the first column of the board,
+		 * and word starts are labeled in reading order, as visualizeBoardPositionPuzzle
+		 * shows them.
+		 * @param board board boardPos is on.
+		 * @param boardPos
+		 * @param wordHintsMap hints of the words, words not in it have none.
+		 */
+		static CompactPuzzle of(Board board, BoardPosition boardPos, Map<String, String> wordHintsMap){
+			//at most one slot per word placed, cells are at most their letters.
+			int slotCount = 0;
+			int maxCellCount = 0;
+			for(BoardPosition pos = boardPos; null != pos; pos = pos.parentPosition){
+				if(null != pos.word){
+					slotCount++;
+					maxCellCount += pos.word.length();
+				}
+			}
+			int[] cellAr = new int[2*maxCellCount];
+			char[] cellLabelAr = new char[maxCellCount];
+			char[] cellLetterAr = new char[maxCellCount];
+			int[] slotAr = new int[3*slotCount];
+			char[] slotLabelAr = new char[slotCount];
+			String[] slotWordAr = new String[slotCount];
+			String[] slotHintAr = new String[slotCount];
+			
+			int smallestCol = board.colSet.iterator().next();
+			int[] colRangeAr = boardPos.getColRangeToPrint(board);
+			Map<Long, String> horWordStartMap = boardPos.wordStartMap(WordOrientation.HORIZONTAL);
+			Map<Long, String> verWordStartMap = boardPos.wordStartMap(WordOrientation.VERTICAL);
+			int wordCounter = -1;
+			int cellCount = 0;
+			int slot = 0;
+			int rowCount = 0;
+			int colCount = 0;
+			int row = 0;
+			for(int j : board.rowSet){
+				for(int i = colRangeAr[0]; i <= colRangeAr[1]; i++){
+					char letter = boardPos.letterAt(j, i);
+					if(0 == letter){
+						continue;
+					}
+					int col = i - smallestCol;
+					String horWordStart = horWordStartMap.get(cellKey(j, i));
+					String verWordStart = verWordStartMap.get(cellKey(j, i));
+					char label = Board.PLACEHOLDER_CHAR;
+					if(null != horWordStart || null != verWordStart){
+						wordCounter++;
+						//currently limited by number of labels in GREEK_ALPHA
+						label = GREEK_ALPHA[wordCounter % GREEK_ALPHA_LEN];
+					}
+					for(byte orient = ACROSS; orient <= DOWN; orient++){
+						String word = ACROSS == orient ? horWordStart : verWordStart;
+						if(null == word){
+							continue;
+						}
+						slotAr[3*slot] = row;
+						slotAr[3*slot+1] = col;
+						slotAr[3*slot+2] = orient;
+						slotLabelAr[slot] = label;
+						slotWordAr[slot] = word;
+						slotHintAr[slot] = wordHintsMap.get(word);
+						slot++;
+					}
+					cellAr[2*cellCount] = row;
+					cellAr[2*cellCount+1] = col;
+					cellLabelAr[cellCount] = label;
+					cellLetterAr[cellCount] = letter;
+					cellCount++;
+					rowCount = row + 1;
+					colCount = Math.max(colCount, col + 1);
+				}
+				row++;
+			}
+			char[] gridAr = new char[rowCount * colCount];
+			for(int i = 0; i < cellCount; i++){
+				gridAr[cellAr[2*i] * colCount + cellAr[2*i+1]] = cellLetterAr[i];
+			}
+			//a word placed over the start of a parallel word hides that start, so there
+			//can be fewer slots than words placed.
+			return new CompactPuzzle(rowCount, colCount, gridAr, Arrays.copyOf(cellAr, 2*cellCount), 
+					Arrays.copyOf(cellLabelAr, cellCount), Arrays.copyOf(slotAr, 3*slot), 
+					Arrays.copyOf(slotLabelAr, slot), Arrays.copyOf(slotWordAr, slot), Arrays.copyOf(slotHintAr, slot));
+		}
 		
-		if(satBoardPosList.isEmpty()){
-			System.out.println("no satisfied BoardPos found!");
-			return Collections.emptyList();
+		/**
+		 * Copy of this puzzle, with hints looked up in wordHintsMap.
+		 */
+		CompactPuzzle withHints(Map<String, String> wordHintsMap){
+			String[] hintedSlotHintAr = new String[slotWordAr.length];
+			for(int slot = 0; slot < slotWordAr.length; slot++){
+				hintedSlotHintAr[slot] = wordHintsMap.get(slotWordAr[slot]);
+			}
+			return new CompactPuzzle(rowCount, colCount, gridAr.clone(), cellAr.clone(), cellLabelAr.clone(), 
+					slotAr.clone(), slotLabelAr.clone(), slotWordAr.clone(), hintedSlotHintAr);
 		}
 		
-		BoardPosition bestBoardPos = satBoardPosList.get(satBoardPosList.size()-1);
-		StringBuilder sb = new StringBuilder(500);
-		List<PuzzleNodeCoordinates> coordinatesList = board.visualizeBoardPositionPuzzle(bestBoardPos, sb, wordHintsMap);
-		System.out.println("processSet - coordinatesList "+coordinatesList);
-		System.out.println("best boardPos \n" + sb);		
-		System.out.println("intersection count: " + bestBoardPos.totalWordIntersectionCount);
+		/**
+		 * @return one PuzzleNodeCoordinates per cell, as processSet returns the puzzle.
+		 */
+		List<PuzzleNodeCoordinates> toCoordinatesList(){
+			int cellCount = cellLabelAr.length;
+			List<PuzzleNodeCoordinates> coordinatesList = new ArrayList<PuzzleNodeCoordinates>(cellCount);
+			//slots are in order of their first cells.
+			int slot = 0;
+			for(int i = 0; i < cellCount; i++){
+				int row = cellAr[2*i];
+				int col = cellAr[2*i+1];
+				String rowWord = null;
+				String rowHint = null;
+				String colWord = null;
+				String colHint = null;
+				while(slot < slotWordAr.length && row == slotAr[3*slot] && col == slotAr[3*slot+1]){
+					if(ACROSS == slotAr[3*slot+2]){
+						rowWord = slotWordAr[slot];
+						rowHint = slotHintAr[slot];
+					}else{
+						colWord = slotWordAr[slot];
+						colHint = slotHintAr[slot];
+					}
+					slot++;
+				}
+				coordinatesList.add(new PuzzleNodeCoordinates(row, col, cellLabelAr[i], rowWord, rowHint, 
+						colWord, colHint));
+			}
+			return coordinatesList;
+		}
 		
-		if(DEBUG){
-			//print all created BoardPos and write to file.
-			List<String> puzzleList = new ArrayList<String>();
-			for(BoardPosition boardPos : satBoardPosList){
-				String solStr = board.visualizeBoardPosition(boardPos);
-				
-				puzzleList.add(solStr);
-				sb = new StringBuilder(500);
-				board.visualizeBoardPositionPuzzle(boardPos, sb, Collections.emptyMap());
-				String puzzleStr = sb.toString();
-				
-				puzzleList.add(puzzleStr);
-				System.out.println("intersection count: " + boardPos.totalWordIntersectionCount);
-				puzzleList.add("Words intersection count: "+ boardPos.totalWordIntersectionCount);
+		public int rowCount(){
+			return rowCount;
+		}
+		
+		public int colCount(){
+			return colCount;
+		}
+		
+		/**
+		 * @return letters row by row, rowCount()*colCount() of them, 
+		 * BLACK_SQUARE where there is none.
+		 */
+		public char[] gridAr(){
+			return gridAr;
+		}
+		
+		public int cellCount(){
+			return cellLabelAr.length;
+		}
+		
+		/**
+		 * @return row and column of each cell, alternating.
+		 */
+		public int[] cellAr(){
+			return cellAr;
+		}
+		
+		/**
+		 * @return label of each cell, ' ' if none.
+		 */
+		public char[] cellLabelAr(){
+			return cellLabelAr;
+		}
+		
+		public int slotCount(){
+			return slotWordAr.length;
+		}
+		
+		/**
+		 * @return row, column, and 0 if across or 1 if down, of each slot's first letter.
+		 */
+		public int[] slotAr(){
+			return slotAr;
+		}
+		
+		public char[] slotLabelAr(){
+			return slotLabelAr;
+		}
+		
+		public String[] slotWordAr(){
+			return slotWordAr;
+		}
+		
+		/**
+		 * @return hint of each slot, null if none.
+		 */
+		public String[] slotHintAr(){
+			return slotHintAr;
+		}
+		
+		/**
+		 * Writes the puzzle as a JSON object, e.g. 
+		 * {"rows":2,"cols":3,"grid":"ab##c#","cells":[0,0,...],"labels":"0 ...",
+		 * "slots":[{"row":0,"col":0,"dir":"across","label":"0","word":"ab","hint":"..."},...]}.
+		 * The grid is a string of rows*cols letters, '#' for black squares. 
+		 * Hints that are null are left out.
+		 */
+		public void writeJson(Appendable out) throws IOException{
+			out.append("{\"rows\":").append(Integer.toString(rowCount))
+				.append(",\"cols\":").append(Integer.toString(colCount))
+				.append(",\"grid\":\"");
+			for(char c : gridAr){
+				appendJsonChar(out, BLACK_SQUARE == c ? JSON_BLACK_SQUARE : c);
 			}
-			puzzleList.add("total number of solutions: " + satBoardPosList.size());
-			String fileStr = "src/crossword/data/puzzles.txt";
-			writeToFile(puzzleList, Paths.get(fileStr));
+			out.append("\",\"cells\":[");
+			for(int i = 0; i < cellAr.length; i++){
+				if(i > 0){
+					out.append(',');
+				}
+				out.append(Integer.toString(cellAr[i]));
+			}
+			out.append("],\"labels\":\"");
+			for(char c : cellLabelAr){
+				appendJsonChar(out, c);
+			}
+			out.append("\",\"slots\":[");
+			for(int slot = 0; slot < slotWordAr.length; slot++){
+				if(slot > 0){
+					out.append(',');
+				}
+				out.append("{\"row\":").append(Integer.toString(slotAr[3*slot]))
+					.append(",\"col\":").append(Integer.toString(slotAr[3*slot+1]))
+					.append(",\"dir\":\"").append(ACROSS == slotAr[3*slot+2] ? "across" : "down")
+					.append("\",\"label\":\"");
+				appendJsonChar(out, slotLabelAr[slot]);
+				out.append("\",\"word\":");
+				appendJsonString(out, slotWordAr[slot]);
+				if(null != slotHintAr[slot]){
+					out.append(",\"hint\":");
+					appendJsonString(out, slotHintAr[slot]);
+				}
+				out.append('}');
+			}
+			out.append("]}");
 		}
-		logger.info("done processSet!");
-		return coordinatesList;
+		
+		private static void appendJsonString(Appendable out, String str) throws IOException{
+			out.append('"');
+			for(int i = 0; i < str.length(); i++){
+				appendJsonChar(out, str.charAt(i));
+			}
+			out.append('"');
+		}
+		
+		private static void appendJsonChar(Appendable out, char c) throws IOException{
+			if('"' == c || '\\' == c){
+				out.append('\\').append(c);
+			}else if(c < 0x20){
+				out.append(String.format("\\u%04x", (int)c));
+			}else{
+				out.append(c);
+			}
+		}
+		
+		/**
+		 * Writes the puzzle in binary: magic number, row and column counts, grid 
+		 * letters, cell count, then row, column and label of each cell, slot count, 
+		 * then row, column, direction byte, label, word, and hint of each slot. 
+		 * Strings are modified UTF-8 as by DataOutput.writeUTF, hints preceded by 
+		 * whether there is one. Read back by readBinary.
+		 */
+		public void writeBinary(DataOutput out) throws IOException{
+			out.writeInt(BINARY_MAGIC);
+			out.writeInt(rowCount);
+			out.writeInt(colCount);
+			for(char c : gridAr){
+				out.writeChar(c);
+			}
+			out.writeInt(cellLabelAr.length);
+			for(int i = 0; i < cellLabelAr.length; i++){
+				out.writeInt(cellAr[2*i]);
+				out.writeInt(cellAr[2*i+1]);
+				out.writeChar(cellLabelAr[i]);
+			}
+			out.writeInt(slotWordAr.length);
+			for(int slot = 0; slot < slotWordAr.length; slot++){
+				out.writeInt(slotAr[3*slot]);
+				out.writeInt(slotAr[3*slot+1]);
+				out.writeByte(slotAr[3*slot+2]);
+				out.writeChar(slotLabelAr[slot]);
+				out.writeUTF(slotWordAr[slot]);
+				out.writeBoolean(null != slotHintAr[slot]);
+				if(null != slotHintAr[slot]){
+					out.writeUTF(slotHintAr[slot]);
+				}
+			}
+		}
+		
+		/**
+		 * Reads a puzzle written by writeBinary.
+		 * @throws IOException if in doesn't start with a puzzle.
+		 */
+		public static CompactPuzzle readBinary(DataInput in) throws IOException{
+			if(BINARY_MAGIC != in.readInt()){
+				throw new IOException("Not a binary crossword puzzle.");
+			}
+			int rowCount = in.readInt();
+			int colCount = in.readInt();
+			char[] gridAr = new char[rowCount * colCount];
+			for(int i = 0; i < gridAr.length; i++){
+				gridAr[i] = in.readChar();
+			}
+			int cellCount = in.readInt();
+			int[] cellAr = new int[2*cellCount];
+			char[] cellLabelAr = new char[cellCount];
+			for(int i = 0; i < cellCount; i++){
+				cellAr[2*i] = in.readInt();
+				cellAr[2*i+1] = in.readInt();
+				cellLabelAr[i] = in.readChar();
+			}
+			int slotCount = in.readInt();
+			int[] slotAr = new int[3*slotCount];
+			char[] slotLabelAr = new char[slotCount];
+			String[] slotWordAr = new String[slotCount];
+			String[] slotHintAr = new String[slotCount];
+			for(int slot = 0; slot < slotCount; slot++){
+				slotAr[3*slot] = in.readInt();
+				slotAr[3*slot+1] = in.readInt();
+				slotAr[3*slot+2] = in.readByte();
+				slotLabelAr[slot] = in.readChar();
+				slotWordAr[slot] = in.readUTF();
+				if(in.readBoolean()){
+					slotHintAr[slot] = in.readUTF();
+				}
+			}
+			return new CompactPuzzle(rowCount, colCount, gridAr, cellAr, cellLabelAr, slotAr, 
+					slotLabelAr, slotWordAr, slotHintAr);
+		}
+	}
+	
+	/**
+	 * Options for the board search. Defaults give the exhaustive search.
+	 */
+	public static class SearchOptions{
+		
+		//max number of BoardPosition's kept per level, 0 if unbounded.
+		private int beamWidth;
+		//pool to expand each level in parallel, null if serial.
+		private ForkJoinPool forkJoinPool;
+		//notified of search progress, null if none.
+		private SearchListener searchListener;
+		//results of earlier searches, null if not cached.
+		private ResultCache resultCache;
+		//whether children with the same layout as an earlier child of the level are dropped.
+		private boolean transpositionTable = true;
+		//max number of leaves kept per level, 0 if unbounded.
+		private int maxLivePositions;
+		//max number of non-dominated leaves kept per remaining-word set, 0 if off.
+		private int dominanceKeepCount;
+		
+		public int beamWidth(){
+			return beamWidth;
+		}
+		
+		public int maxLivePositions(){
+			return maxLivePositions;
+		}
+		
+		/**
+		 * Caps the leaves of each level, to bound the memory of a search. Once
+		 * a level has more, only the best maxLivePositions are kept, as in beam 
+		 * mode, and the result reports that it was pruned. Unlike the beam 
+		 * width, meant as a guardrail that most searches stay below.
+		 * @param maxLivePositions_ positive cap, or 0 for unbounded.
+		 * @return this SearchOptions
+		 */
+		public SearchOptions setMaxLivePositions(int maxLivePositions_){
+			if(maxLivePositions_ < 0){
+				throw new IllegalArgumentException("maxLivePositions cannot be negative: " + maxLivePositions_);
+			}
+			this.maxLivePositions = maxLivePositions_;
+			return this;
+		}
+		
+		public int dominanceKeepCount(){
+			return dominanceKeepCount;
+		}
+		
+		/**
+		 * Prunes the unsolved leaves of each level that have the same remaining words 
+		 * as another leaf, but fewer intersections and a bounding box at least as 
+		 * large, or as many intersections and a larger box. At most 
+		 * dominanceKeepCount leaves are kept per remaining-word set, the best ones
+		 * as ranked for the final puzzle. Leaves with all words placed are never pruned.
+		 * <p>
+		 * This is a lossy heuristic: the intersections and area of a leaf say little
+		 * about those of its descendants, so the leaf the best puzzle descends from 
+		 * can be pruned, and the puzzle returned changes, whatever the keep count.
+		 * Off by default, then the search is exhaustive.
+		 * @param dominanceKeepCount_ positive count, or 0 to not prune.
+		 * @return this SearchOptions
+		 */
+		public SearchOptions setDominanceKeepCount(int dominanceKeepCount_){
+			if(dominanceKeepCount_ < 0){
+				throw new IllegalArgumentException("dominanceKeepCount cannot be negative: " 
+						+ dominanceKeepCount_);
+			}
+			this.dominanceKeepCount = dominanceKeepCount_;
+			return this;
+		}
+		
+		public ForkJoinPool forkJoinPool(){
+			return forkJoinPool;
+		}
+		
+		public SearchListener searchListener(){
+			return searchListener;
+		}
+		
+		public ResultCache resultCache(){
+			return resultCache;
+		}
+		
+		public boolean transpositionTable(){
+			return transpositionTable;
+		}
+		
+		/**
+		 * Whether BoardPosition's of a level that have the same layout, i.e. the 
+		 * same words at the same places, reached by inserting them in different 
+		 * orders, are only expanded once. The first one created is kept. On by default.
+		 * @param transpositionTable_
+		 * @return this SearchOptions
+		 */
+		public SearchOptions setTranspositionTable(boolean transpositionTable_){
+			this.transpositionTable = transpositionTable_;
+			return this;
+		}
+		
+		/**
+		 * Looks up and stores puzzles in the given cache, which can be shared
+		 * by all requests.
+		 * @param resultCache_ cache, or null to always search.
+		 * @return this SearchOptions
+		 */
+		public SearchOptions setResultCache(ResultCache resultCache_){
+			this.resultCache = resultCache_;
+			return this;
+		}
+		
+		/**
+		 * Reports search progress to the given listener, e.g. a SearchMetrics
+		 * shared by all requests. Searches don't time their phases without one.
+		 * @param searchListener_ listener, or null for none.
+		 * @return this SearchOptions
+		 */
+		public SearchOptions setSearchListener(SearchListener searchListener_){
+			this.searchListener = searchListener_;
+			return this;
+		}
+		
+		/**
+		 * Expands the leaves of each level in parallel on the given pool, 
+		 * e.g. ForkJoinPool.commonPool(). Results are the same as for 
+		 * the serial search.
+		 * @param forkJoinPool_ pool, or null to expand serially.
+		 * @return this SearchOptions
+		 */
+		public SearchOptions setForkJoinPool(ForkJoinPool forkJoinPool_){
+			this.forkJoinPool = forkJoinPool_;
+			return this;
+		}
+		
+		/**
+		 * Bounds the search to beam mode, keeping only the best beamWidth 
+		 * BoardPosition's on each level.
+		 * @param beamWidth_ positive width, or 0 for unbounded.
+		 * @return this SearchOptions
+		 */
+		public SearchOptions setBeamWidth(int beamWidth_){
+			if(beamWidth_ < 0){
+				throw new IllegalArgumentException("beamWidth cannot be negative: " + beamWidth_);
+			}
+			this.beamWidth = beamWidth_;
+			return this;
+		}
+	}
+	
+	/**
+	 * Receives progress of a search. Called on the thread running the
+	 * search, a listener shared by concurrent searches must be thread-safe.
+	 */
+	public interface SearchListener{
+		
+		/**
+		 * Called after each level of the search is expanded and merged into the board.
+		 */
+		default void levelExpanded(LevelStats levelStats){
+		}
+		
+		/**
+		 * Called once no more levels are expanded.
+		 * @param levelCount number of levels expanded.
+		 * @param solvedCount number of BoardPosition's with all words placed.
+		 * @param rankNanos time ranking the solved BoardPosition's.
+		 */
+		default void searchFinished(int levelCount, int solvedCount, long rankNanos){
+		}
+		
+		/**
+		 * Called once the best BoardPosition is turned into the puzzle.
+		 */
+		default void puzzleRendered(long renderNanos){
+		}
+	}
+	
+	/**
+	 * Counts and times of one level of the search.
+	 */
+	public static class LevelStats{
+		
+		private final int level;
+		private final int nodesExpanded;
+		private final int solvedCount;
+		private final int childrenCount;
+		private final long candidatesTried;
+		private final long candidatesRejected;
+		private final long transpositions;
+		private final long gatherNanos;
+		private final long insertionNanos;
+		private final long expandNanos;
+		private final long mergeNanos;
+		private final long rankNanos;
+		
+		LevelStats(int level_, int nodesExpanded_, int solvedCount_, int childrenCount_,
+				ExpansionCounts counts, long expandNanos_, long mergeNanos_, long rankNanos_){
+			this.level = level_;
+			this.nodesExpanded = nodesExpanded_;
+			this.solvedCount = solvedCount_;
+			this.childrenCount = childrenCount_;
+			this.candidatesTried = counts.candidatesTried;
+			this.candidatesRejected = counts.candidatesTried - counts.candidatesAccepted;
+			this.transpositions = counts.transpositions;
+			this.gatherNanos = counts.gatherNanos;
+			this.insertionNanos = counts.insertionNanos;
+			this.expandNanos = expandNanos_;
+			this.mergeNanos = mergeNanos_;
+			this.rankNanos = rankNanos_;
+		}
+		
+		/**
+		 * @return level number, the first word's BoardPosition is expanded on level 0.
+		 */
+		public int level(){
+			return level;
+		}
+		
+		/**
+		 * @return number of leaves expanded, i.e. the frontier size.
+		 */
+		public int nodesExpanded(){
+			return nodesExpanded;
+		}
+		
+		/**
+		 * @return leaves with all words placed so far, these are not expanded.
+		 */
+		public int solvedCount(){
+			return solvedCount;
+		}
+		
+		/**
+		 * @return children kept, before any dominance pruning, beam selection or cap.
+		 */
+		public int childrenCount(){
+			return childrenCount;
+		}
+		
+		/**
+		 * @return (word, offset) pairs whose letter matched a board letter.
+		 */
+		public long candidatesTried(){
+			return candidatesTried;
+		}
+		
+		/**
+		 * @return candidates that failed the placement checks.
+		 */
+		public long candidatesRejected(){
+			return candidatesRejected;
+		}
+		
+		/**
+		 * @return children dropped for having the layout of an earlier child.
+		 */
+		public long transpositions(){
+			return transpositions;
+		}
+		
+		/**
+		 * @return time in gatherWordNodes, summed over threads.
+		 */
+		public long gatherNanos(){
+			return gatherNanos;
+		}
+		
+		/**
+		 * @return time in findLegalWordInsertion, summed over threads.
+		 */
+		public long insertionNanos(){
+			return insertionNanos;
+		}
+		
+		/**
+		 * @return wall time expanding the leaves.
+		 */
+		public long expandNanos(){
+			return expandNanos;
+		}
+		
+		/**
+		 * @return time inserting the children into the board.
+		 */
+		public long mergeNanos(){
+			return mergeNanos;
+		}
+		
+		/**
+		 * @return time cutting the children down to the leaves of the next level, 
+		 * i.e. dominance pruning, beam selection and the cap on live positions. 
+		 * Measured even if none is set, then only the time to check for them.
+		 */
+		public long rankNanos(){
+			return rankNanos;
+		}
+		
+		@Override
+		public String toString(){
+			return "level " + level + ": nodesExpanded " + nodesExpanded + ", solved " + solvedCount
+					+ ", children " + childrenCount + ", candidatesTried " + candidatesTried 
+					+ ", candidatesRejected " + candidatesRejected + ", transpositions " + transpositions
+					+ ", expandNanos " + expandNanos
+					+ ", mergeNanos " + mergeNanos + ", rankNanos " + rankNanos;
+		}
+	}
+	
+	/**
+	 * Totals over all searches it's attached to, safe to share between 
+	 * concurrent searches, e.g. one per servlet, and to read while they run.
+	 */
+	public static class SearchMetrics implements SearchListener{
+		
+		private final LongAdder searches = new LongAdder();
+		private final LongAdder levels = new LongAdder();
+		private final LongAdder nodesExpanded = new LongAdder();
+		private final LongAdder childrenCreated = new LongAdder();
+		private final LongAdder candidatesTried = new LongAdder();
+		private final LongAdder candidatesRejected = new LongAdder();
+		private final LongAdder transpositions = new LongAdder();
+		private final LongAccumulator maxFrontierSize = new LongAccumulator(Math::max, 0);
+		private final LongAdder gatherNanos = new LongAdder();
+		private final LongAdder insertionNanos = new LongAdder();
+		private final LongAdder expandNanos = new LongAdder();
+		private final LongAdder mergeNanos = new LongAdder();
+		private final LongAdder rankNanos = new LongAdder();
+		private final LongAdder renderNanos = new LongAdder();
+		
+		@Override
+		public void levelExpanded(LevelStats levelStats){
+			levels.increment();
+			nodesExpanded.add(levelStats.nodesExpanded());
+			childrenCreated.add(levelStats.childrenCount());
+			candidatesTried.add(levelStats.candidatesTried());
+			candidatesRejected.add(levelStats.candidatesRejected());
+			transpositions.add(levelStats.transpositions());
+			maxFrontierSize.accumulate(levelStats.nodesExpanded());
+			gatherNanos.add(levelStats.gatherNanos());
+			insertionNanos.add(levelStats.insertionNanos());
+			expandNanos.add(levelStats.expandNanos());
+			mergeNanos.add(levelStats.mergeNanos());
+			rankNanos.add(levelStats.rankNanos());
+		}
+		
+		@Override
+		public void searchFinished(int levelCount, int solvedCount, long rankNanos_){
+			searches.increment();
+			rankNanos.add(rankNanos_);
+		}
+		
+		@Override
+		public void puzzleRendered(long renderNanos_){
+			renderNanos.add(renderNanos_);
+		}
+		
+		public long searches(){
+			return searches.sum();
+		}
+		
+		public long nodesExpanded(){
+			return nodesExpanded.sum();
+		}
+		
+		public long candidatesTried(){
+			return candidatesTried.sum();
+		}
+		
+		public long candidatesRejected(){
+			return candidatesRejected.sum();
+		}
+		
+		/**
+		 * @return largest frontier expanded on any one level.
+		 */
+		public long maxFrontierSize(){
+			return maxFrontierSize.get();
+		}
+		
+		/**
+		 * Current values by name, e.g. for exporting from a servlet. Counters
+		 * updated concurrently may be from slightly different moments.
+		 * @return
+		 */
+		public Map<String, Long> snapshot(){
+			Map<String, Long> snapshotMap = new LinkedHashMap<String, Long>();
+			snapshotMap.put("searches", searches.sum());
+			snapshotMap.put("levels", levels.sum());
+			snapshotMap.put("nodesExpanded", nodesExpanded.sum());
+			snapshotMap.put("childrenCreated", childrenCreated.sum());
+			snapshotMap.put("candidatesTried", candidatesTried.sum());
+			snapshotMap.put("candidatesRejected", candidatesRejected.sum());
+			snapshotMap.put("transpositions", transpositions.sum());
+			snapshotMap.put("maxFrontierSize", maxFrontierSize.get());
+			snapshotMap.put("gatherNanos", gatherNanos.sum());
+			snapshotMap.put("insertionNanos", insertionNanos.sum());
+			snapshotMap.put("expandNanos", expandNanos.sum());
+			snapshotMap.put("mergeNanos", mergeNanos.sum());
+			snapshotMap.put("rankNanos", rankNanos.sum());
+			snapshotMap.put("renderNanos", renderNanos.sum());
+			return snapshotMap;
+		}
+		
+		@Override
+		public String toString(){
+			return "SearchMetrics " + snapshot();
+		}
+	}
+	
+	/**
+	 * Puzzles of earlier searches, keyed by their set of words and the search options
+	 * that change the puzzle found. 
+	 * Hints are not stored, so inputs that only differ in order, duplicates or 
+	 * hints share an entry. Puzzles are stored as CompactPuzzle's, flat arrays 
+	 * rather than one object per cell. Least recently used entries are evicted 
+	 * once full, and entries expire ttl after being stored. Safe to share between threads.
+	 */
+	public static class ResultCache{
+		
+		private final int maxSize;
+		//0 if entries don't expire.
+		private final long ttlNanos;
+		private final Map<CacheKey, CacheEntry> cacheMap;
+		private final LongAdder hits = new LongAdder();
+		private final LongAdder misses = new LongAdder();
+		
+		/**
+		 * @param maxSize_ max number of puzzles kept.
+		 * @param ttl time entries are kept for, 0 to keep until evicted.
+		 * @param ttlUnit
+		 */
+		public ResultCache(int maxSize_, long ttl, TimeUnit ttlUnit){
+			if(maxSize_ < 1){
+				throw new IllegalArgumentException("maxSize must be positive: " + maxSize_);
+			}
+			if(ttl < 0){
+				throw new IllegalArgumentException("ttl cannot be negative: " + ttl);
+			}
+			this.maxSize = maxSize_;
+			this.ttlNanos = ttlUnit.toNanos(ttl);
+			//access order, so the eldest entry is the least recently used.
+			this.cacheMap = new LinkedHashMap<CacheKey, CacheEntry>(16, 0.75f, true){
+				private static final long serialVersionUID = 1L;
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<CacheKey, CacheEntry> eldest){
+					return size() > maxSize;
+				}
+			};
+		}
+		
+		/**
+		 * @return puzzle without hints, or null if not cached or expired.
+		 */
+		synchronized PuzzleResult get(CacheKey key){
+			CacheEntry entry = cacheMap.get(key);
+			if(null != entry && ttlNanos > 0 && System.nanoTime() - entry.storedNanos > ttlNanos){
+				cacheMap.remove(key);
+				entry = null;
+			}
+			if(null == entry){
+				misses.increment();
+				return null;
+			}
+			hits.increment();
+			return entry.puzzleResult;
+		}
+		
+		synchronized void put(CacheKey key, PuzzleResult puzzleResult){
+			cacheMap.put(key, new CacheEntry(puzzleResult, System.nanoTime()));
+		}
+		
+		public synchronized int size(){
+			return cacheMap.size();
+		}
+		
+		public synchronized void clear(){
+			cacheMap.clear();
+		}
+		
+		public long hits(){
+			return hits.sum();
+		}
+		
+		public long misses(){
+			return misses.sum();
+		}
+		
+		/**
+		 * Words in Board insertion order, and every search option that can change
+		 * the puzzle found: beam width, cap on live positions, dominance keep count 
+		 * and transposition table. The ForkJoinPool and listener don't.
+		 */
+		static class CacheKey{
+			private final List<String> wordsList;
+			private final int beamWidth;
+			private final int maxLivePositions;
+			private final int dominanceKeepCount;
+			private final boolean transpositionTable;
+			
+			CacheKey(List<String> orderedWordsList, SearchOptions searchOptions){
+				this.wordsList = new ArrayList<String>(orderedWordsList);
+				this.beamWidth = searchOptions.beamWidth();
+				this.maxLivePositions = searchOptions.maxLivePositions();
+				this.dominanceKeepCount = searchOptions.dominanceKeepCount();
+				this.transpositionTable = searchOptions.transpositionTable();
+			}
+			
+			@Override
+			public boolean equals(Object other){
+				if(!(other instanceof CacheKey)){
+					return false;
+				}
+				CacheKey otherKey = (CacheKey)other;
+				return beamWidth == otherKey.beamWidth && maxLivePositions == otherKey.maxLivePositions
+						&& dominanceKeepCount == otherKey.dominanceKeepCount 
+						&& transpositionTable == otherKey.transpositionTable
+						&& wordsList.equals(otherKey.wordsList);
+			}
+			
+			@Override
+			public int hashCode(){
+				int hash = 31 * (31 * wordsList.hashCode() + beamWidth) + maxLivePositions;
+				return 31 * (31 * hash + dominanceKeepCount) + (transpositionTable ? 1 : 0);
+			}
+		}
+		
+		private static class CacheEntry{
+			final PuzzleResult puzzleResult;
+			final long storedNanos;
+			
+			CacheEntry(PuzzleResult puzzleResult_, long storedNanos_){
+				this.puzzleResult = puzzleResult_;
+				this.storedNanos = storedNanos_;
+			}
+		}
+	}
+	
+	/**
+	 * Limits of a search. Whichever limit is reached first stops it.
+	 */
+	public static class SearchBudget{
+		
+		//0 if unbounded.
+		private long timeLimitNanos;
+		//max number of BoardPosition's expanded, 0 if unbounded.
+		private long nodeLimit;
+		
+		public long timeLimitNanos(){
+			return timeLimitNanos;
+		}
+		
+		public long nodeLimit(){
+			return nodeLimit;
+		}
+		
+		/**
+		 * Stops the search once it's run for timeLimit. The level being expanded 
+		 * is cut short, so the search can overrun by about one leaf's expansion.
+		 * @param timeLimit positive limit, or 0 for unbounded.
+		 * @param unit
+		 * @return this SearchBudget
+		 */
+		public SearchBudget setTimeLimit(long timeLimit, TimeUnit unit){
+			if(timeLimit < 0){
+				throw new IllegalArgumentException("timeLimit cannot be negative: " + timeLimit);
+			}
+			this.timeLimitNanos = unit.toNanos(timeLimit);
+			return this;
+		}
+		
+		/**
+		 * Stops the search once nodeLimit BoardPosition's are expanded. Unlike 
+		 * the time limit, gives the same result on every run.
+		 * @param nodeLimit_ positive limit, or 0 for unbounded.
+		 * @return this SearchBudget
+		 */
+		public SearchBudget setNodeLimit(long nodeLimit_){
+			if(nodeLimit_ < 0){
+				throw new IllegalArgumentException("nodeLimit cannot be negative: " + nodeLimit_);
+			}
+			this.nodeLimit = nodeLimit_;
+			return this;
+		}
+	}
+	
+	/**
+	 * Puzzle found by a search, and the words it leaves out, if it 
+	 * stopped before placing all of them. The puzzle is kept in compact form,
+	 * the PuzzleNodeCoordinates are only created if asked for.
+	 */
+	public static class PuzzleResult{
+		
+		private final CompactPuzzle compactPuzzle;
+		//built from compactPuzzle on first use.
+		private volatile List<PuzzleNodeCoordinates> coordinatesList;
+		private final List<String> omittedWordsList;
+		private final boolean budgetExhausted;
+		private final boolean pruned;
+		
+		PuzzleResult(CompactPuzzle compactPuzzle_, List<String> omittedWordsList_,
+				boolean budgetExhausted_, boolean pruned_){
+			this.compactPuzzle = compactPuzzle_;
+			this.omittedWordsList = omittedWordsList_;
+			this.budgetExhausted = budgetExhausted_;
+			this.pruned = pruned_;
+		}
+		
+		/**
+		 * Copy of this result, with hints looked up in wordHintsMap.
+		 */
+		PuzzleResult withHints(Map<String, String> wordHintsMap){
+			return new PuzzleResult(compactPuzzle.withHints(wordHintsMap), 
+					new ArrayList<String>(omittedWordsList), budgetExhausted, pruned);
+		}
+		
+		/**
+		 * @return one PuzzleNodeCoordinates per cell, created on the first call.
+		 */
+		public List<PuzzleNodeCoordinates> coordinatesList(){
+			List<PuzzleNodeCoordinates> nodeCoordinatesList = coordinatesList;
+			if(null == nodeCoordinatesList){
+				nodeCoordinatesList = compactPuzzle.toCoordinatesList();
+				coordinatesList = nodeCoordinatesList;
+			}
+			return nodeCoordinatesList;
+		}
+		
+		/**
+		 * @return words not in the puzzle, empty if complete.
+		 */
+		public List<String> omittedWordsList(){
+			return omittedWordsList;
+		}
+		
+		/**
+		 * @return whether the puzzle has all words.
+		 */
+		public boolean complete(){
+			return omittedWordsList.isEmpty();
+		}
+		
+		/**
+		 * @return whether the search was stopped by its SearchBudget, rather
+		 * than searching exhaustively.
+		 */
+		public boolean budgetExhausted(){
+			return budgetExhausted;
+		}
+		
+		/**
+		 * @return whether the search dropped positions to stay within 
+		 * SearchOptions.maxLivePositions, so a better puzzle may exist.
+		 */
+		public boolean pruned(){
+			return pruned;
+		}
+		
+		/**
+		 * @return the puzzle in flat arrays, e.g. to write as JSON or binary.
+		 */
+		public CompactPuzzle compactPuzzle(){
+			return compactPuzzle;
+		}
+	}
+	
+	/**
+	 * Takes list of words, create crossword puzzle from it.
+	 * 
+	 * @param wordsList comma-separated words and hints, alternating
+	 * word0,hint0,word1,hint1,...
+	 */
+	public static List<PuzzleNodeCoordinates> processSet(List<String> wordsList){
+		return processSet(wordsList, new SearchOptions());
+	}
+	
+	/**
+	 * Takes list of words, create crossword puzzle from it.
+	 * 
+	 * @param wordsList comma-separated words and hints, alternating
+	 * word0,hint0,word1,hint1,...
+	 * @param searchOptions e.g. beam width of the search.
+	 * @return the puzzle, empty if not all words fit.
+	 */
+	public static List<PuzzleNodeCoordinates> processSet(List<String> wordsList, SearchOptions searchOptions){
+		PuzzleResult puzzleResult = processSet(wordsList, searchOptions, null);
+		if(!puzzleResult.complete()){
+			return Collections.emptyList();
+		}
+		return puzzleResult.coordinatesList();
+	}
+	
+	/**
+	 * Takes list of words, create crossword puzzle from it, within the given budget.
+	 * If the budget runs out, or not all words fit, the best puzzle found with 
+	 * some words left out is returned.
+	 * 
+	 * @param wordsList comma-separated words and hints, alternating
+	 * word0,hint0,word1,hint1,...
+	 * @param searchOptions e.g. beam width of the search.
+	 * @param searchBudget time or node limit of the search, null if unbounded.
+	 * @return the puzzle, and the words left out of it.
+	 */
+	public static PuzzleResult processSet(List<String> wordsList, SearchOptions searchOptions, 
+			SearchBudget searchBudget){
+		
+		logger.info("processSet wordsList "+wordsList);
+		if(wordsList.isEmpty()){
+			return new PuzzleResult(CompactPuzzle.EMPTY, Collections.<String>emptyList(), false, false);
+		}
+		//build word-to-hint map.
+		Map<String, String> wordHintsMap = new HashMap<String, String>();
+		wordsList = buildWordHintsMap(wordsList, wordHintsMap);
+		
+		wordsList = orderWordsList(wordsList);
+		
+		ResultCache resultCache = searchOptions.resultCache();
+		if(null == resultCache){
+			PuzzleResult puzzleResult = solve(wordsList, wordHintsMap, searchOptions, searchBudget);
+			logger.info("done processSet!");
+			return puzzleResult;
+		}
+		ResultCache.CacheKey cacheKey = new ResultCache.CacheKey(wordsList, searchOptions);
+		PuzzleResult cachedPuzzleResult = resultCache.get(cacheKey);
+		if(null == cachedPuzzleResult){
+			cachedPuzzleResult = solve(wordsList, Collections.<String, String>emptyMap(), searchOptions, searchBudget);
+			//a search cut short depends on the budget, and isn't kept.
+			//concurrent misses on the same key each search, last one is kept.
+			if(!cachedPuzzleResult.budgetExhausted()){
+				resultCache.put(cacheKey, cachedPuzzleResult);
+			}
+		}
+		//cached puzzles are never handed out, callers get their own copies with hints.
+		PuzzleResult puzzleResult = cachedPuzzleResult.withHints(wordHintsMap);
+		logger.info("done processSet!");
+		return puzzleResult;
+	}
+	
+	/**
+	 * Searches for and renders the best puzzle.
+	 * @param wordsList words in Board insertion order, modified.
+	 * @param wordHintsMap
+	 * @param searchOptions
+	 * @param searchBudget null if unbounded.
+	 * @return the best puzzle, with some words left out if none has all of them.
+	 */
+	private static PuzzleResult solve(List<String> wordsList, Map<String, String> wordHintsMap, 
+			SearchOptions searchOptions, SearchBudget searchBudget){
+		
+		String firstWord = wordsList.get(0);
+		wordsList.remove(0);
+		return solve(new Board(firstWord, wordsList, searchOptions), wordHintsMap, searchBudget);
+	}
+	
+	/**
+	 * Searches for and renders the best puzzle on a new board.
+	 */
+	private static PuzzleResult solve(Board board, Map<String, String> wordHintsMap, 
+			SearchBudget searchBudget){
+		
+		//More optimal BoardPositions appear later in List.
+		List<BoardPosition> satBoardPosList = board.build(searchBudget);
+		BoardPosition bestBoardPos = bestBoardPosition(board);
+		PuzzleResult puzzleResult = renderPuzzleResult(board, bestBoardPos, wordHintsMap);
+		
+		if(DEBUG){
+			//print all created BoardPos and write to file.
+			List<String> puzzleList = new ArrayList<String>();
+			for(BoardPosition boardPos : satBoardPosList){
+				String solStr = board.visualizeBoardPosition(boardPos);
+				
+				puzzleList.add(solStr);
+				StringBuilder sb = new StringBuilder(500);
+				board.visualizeBoardPositionPuzzle(boardPos, sb, Collections.emptyMap());
+				String puzzleStr = sb.toString();
+				
+				puzzleList.add(puzzleStr);
+				System.out.println("intersection count: " + boardPos.totalWordIntersectionCount);
+				puzzleList.add("Words intersection count: "+ boardPos.totalWordIntersectionCount);
+			}
+			puzzleList.add("total number of solutions: " + satBoardPosList.size());
+			String fileStr = "src/crossword/data/puzzles.txt";
+			writeToFile(puzzleList, Paths.get(fileStr));
+		}
+		return puzzleResult;
+	}
+	
+	/**
+	 * @param board board after build()
+	 * @return best solved position, or best unsolved one if there is none.
+	 */
+	private static BoardPosition bestBoardPosition(Board board){
+		BoardPosition bestBoardPos = board.bestSolution();
+		if(null == bestBoardPos){
+			logger.info("no satisfied BoardPos found!");
+			return board.bestPartialBoardPosition();
+		}
+		return bestBoardPos;
+	}
+	
+	/**
+	 * Turns boardPos into the puzzle returned to callers.
+	 */
+	private static PuzzleResult renderPuzzleResult(Board board, BoardPosition boardPos, 
+			Map<String, String> wordHintsMap){
+		SearchListener searchListener = board.searchOptions.searchListener();
+		long renderStartNanos = null != searchListener ? System.nanoTime() : 0;
+		CompactPuzzle compactPuzzle = CompactPuzzle.of(board, boardPos, wordHintsMap);
+		if(null != searchListener){
+			searchListener.puzzleRendered(System.nanoTime() - renderStartNanos);
+		}
+		if(logger.isDebugEnabled()){
+			StringBuilder sb = new StringBuilder(500);
+			board.visualizeBoardPositionPuzzle(boardPos, sb, wordHintsMap);
+			logger.debug("best boardPos \n" + sb);
+			logger.debug("intersection count: " + boardPos.totalWordIntersectionCount);
+		}
+		return new PuzzleResult(compactPuzzle, boardPos.remainingWords.toList(), 
+				board.budgetExhausted(), board.pruned());
+	}
+	
+	/**
+	 * Creates a crossword puzzle that more words can be added to later, 
+	 * see PuzzleHandle. Results are not cached.
+	 * 
+	 * @param wordsList comma-separated words and hints, alternating
+	 * word0,hint0,word1,hint1,...
+	 * @param searchOptions e.g. beam width of the search.
+	 * @param searchBudget time or node limit of the search, null if unbounded.
+	 * @return handle to the puzzle.
+	 */
+	public static PuzzleHandle createPuzzle(List<String> wordsList, SearchOptions searchOptions, 
+			SearchBudget searchBudget){
+		
+		logger.info("createPuzzle wordsList "+wordsList);
+		Map<String, String> wordHintsMap = new HashMap<String, String>();
+		wordsList = orderWordsList(buildWordHintsMap(wordsList, wordHintsMap));
+		if(wordsList.isEmpty()){
+			throw new IllegalArgumentException("No words to create a puzzle from.");
+		}
+		String firstWord = wordsList.remove(0);
+		Board board = new Board(firstWord, wordsList, searchOptions);
+		board.build(searchBudget);
+		BoardPosition bestBoardPos = bestBoardPosition(board);
+		board.clearFrontier();
+		return new PuzzleHandle(board, bestBoardPos, wordHintsMap);
+	}
+	
+	/**
+	 * A generated puzzle that words can be added to, keeping the words already 
+	 * placed where they are. Adding words only searches for the new ones, and
+	 * the words the puzzle left out. Only the chosen position is kept between
+	 * searches, not the rest of the last level. Not thread-safe.
+	 */
+	public static class PuzzleHandle{
+		
+		private final Board board;
+		private final Map<String, String> wordHintsMap;
+		private BoardPosition boardPosition;
+		private PuzzleResult puzzleResult;
+		
+		PuzzleHandle(Board board_, BoardPosition boardPosition_, Map<String, String> wordHintsMap_){
+			this.board = board_;
+			this.boardPosition = boardPosition_;
+			this.wordHintsMap = wordHintsMap_;
+			this.puzzleResult = renderPuzzleResult(board_, boardPosition_, wordHintsMap_);
+		}
+		
+		/**
+		 * @return the current puzzle.
+		 */
+		public PuzzleResult puzzleResult(){
+			return puzzleResult;
+		}
+		
+		/**
+		 * Adds words to the puzzle. Words already placed only have their hints updated.
+		 * @param wordsList comma-separated words and hints, alternating
+		 * word0,hint0,word1,hint1,...
+		 * @param searchBudget time or node limit of the search, null if unbounded.
+		 * @return the new puzzle, words that don't fit are left out.
+		 */
+		public PuzzleResult addWords(List<String> wordsList, SearchBudget searchBudget){
+			List<String> addedWordsList = buildWordHintsMap(wordsList, wordHintsMap);
+			board.build(boardPosition, addedWordsList, searchBudget);
+			this.boardPosition = bestBoardPosition(board);
+			board.clearFrontier();
+			this.puzzleResult = renderPuzzleResult(board, boardPosition, wordHintsMap);
+			return puzzleResult;
+		}
+	}
+	
+	/**
+	 * Lazily enumerates the puzzles with all words placed, in the order the 
+	 * search finds them, which is not by rank. The search only runs as far as
+	 * the stream is consumed, e.g. findFirst() stops at the first solution. 
+	 * All options of searchOptions but the cache are used, results are not cached.
+	 * With a beam width or cap on live positions, the solutions of a level only
+	 * come once the whole level is expanded, as those cut by build() are left out.
+	 * 
+	 * @param wordsList comma-separated words and hints, alternating
+	 * word0,hint0,word1,hint1,...
+	 * @param searchOptions e.g. beam width of the search.
+	 * @return sequential stream of solutions.
+	 */
+	public static Stream<PuzzleResult> solutions(List<String> wordsList, SearchOptions searchOptions){
+		
+		logger.info("solutions wordsList "+wordsList);
+		Map<String, String> wordHintsMap = new HashMap<String, String>();
+		wordsList = orderWordsList(buildWordHintsMap(wordsList, wordHintsMap));
+		if(wordsList.isEmpty()){
+			return Stream.empty();
+		}
+		String firstWord = wordsList.remove(0);
+		Board board = new Board(firstWord, wordsList, searchOptions);
+		Iterator<BoardPosition> solutionIter = board.solutionIterator();
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(solutionIter, 
+				Spliterator.ORDERED | Spliterator.NONNULL), false)
+				.map(boardPos -> renderPuzzleResult(board, boardPos, wordHintsMap));
+	}
+	
+	/**
+	 * The best solutionCount puzzles with all words placed. Searches like processSet,
+	 * but only holds about 2*solutionCount solutions at a time. With a beam width
+	 * or cap on live positions, a level's solutions are also held until it's cut.
+	 * 
+	 * @param wordsList comma-separated words and hints, alternating
+	 * word0,hint0,word1,hint1,...
+	 * @param searchOptions e.g. beam width of the search.
+	 * @param solutionCount max number of puzzles returned.
+	 * @return puzzles best first, the first being the one processSet returns.
+	 */
+	public static List<PuzzleResult> bestSolutions(List<String> wordsList, SearchOptions searchOptions,
+			int solutionCount){
+		
+		logger.info("bestSolutions wordsList "+wordsList);
+		if(solutionCount < 1){
+			throw new IllegalArgumentException("solutionCount must be positive: " + solutionCount);
+		}
+		Map<String, String> wordHintsMap = new HashMap<String, String>();
+		wordsList = orderWordsList(buildWordHintsMap(wordsList, wordHintsMap));
+		if(wordsList.isEmpty()){
+			return Collections.emptyList();
+		}
+		String firstWord = wordsList.remove(0);
+		Board board = new Board(firstWord, wordsList, searchOptions);
+		List<PuzzleResult> puzzleResultList = new ArrayList<PuzzleResult>(solutionCount);
+		for(BoardPosition boardPos : board.bestSolutions(solutionCount)){
+			puzzleResultList.add(renderPuzzleResult(board, boardPos, wordHintsMap));
+		}
+		return puzzleResultList;
+	}
+	
+	/**
+	 * Creates puzzles for many word lists concurrently, each searched as by 
+	 * processSet(wordsList, searchOptions, searchBudget) with its own Board. 
+	 * Results are streamed back as puzzles finish, not in input order. Closing
+	 * the stream early stops the remaining word lists from being started.
+	 * 
+	 * @param wordsListList word lists, each comma-separated words and hints, 
+	 * alternating word0,hint0,word1,hint1,...
+	 * @param searchOptions shared by all searches, its listener and cache must be
+	 * thread-safe, as SearchMetrics and ResultCache are.
+	 * @param searchBudget limits of each search, e.g. a per-puzzle time limit, null
+	 * if unbounded.
+	 * @param batchOptions executor and concurrency of the batch.
+	 * @return stream of one BatchResult per word list, in completion order.
+	 */
+	public static Stream<BatchResult> processBatch(List<List<String>> wordsListList, 
+			SearchOptions searchOptions, SearchBudget searchBudget, BatchOptions batchOptions){
+		
+		int wordsListCount = wordsListList.size();
+		BlockingQueue<BatchResult> batchResultQueue = new LinkedBlockingQueue<BatchResult>();
+		AtomicInteger nextIndex = new AtomicInteger();
+		AtomicBoolean closed = new AtomicBoolean();
+		//each worker takes word lists until none are left, so at most 
+		//maxConcurrency searches run at a time.
+		Runnable worker = () -> {
+			int index;
+			while(!closed.get() && (index = nextIndex.getAndIncrement()) < wordsListCount){
+				BatchResult batchResult;
+				try{
+					batchResult = new BatchResult(index, 
+							processSet(wordsListList.get(index), searchOptions, searchBudget), null);
+				}catch(Throwable e){
+					logger.error("processBatch failed on word list " + index + ": " + e);
+					batchResult = new BatchResult(index, null, e);
+				}
+				batchResultQueue.add(batchResult);
+			}
+		};
+		Executor executor = batchOptions.executor();
+		ExecutorService batchExecutorService = null;
+		if(null == executor){
+			executor = batchExecutorService = newBatchExecutorService();
+		}
+		int workerCount = Math.min(batchOptions.maxConcurrency(), wordsListCount);
+		for(int i = 0; i < workerCount; i++){
+			executor.execute(worker);
+		}
+		if(null != batchExecutorService){
+			//lets the workers finish, then ends its threads.
+			batchExecutorService.shutdown();
+		}
+		Iterator<BatchResult> batchResultIter = new Iterator<BatchResult>(){
+			int resultCount;
+			
+			@Override
+			public boolean hasNext(){
+				return resultCount < wordsListCount;
+			}
+			
+			@Override
+			public BatchResult next(){
+				if(!hasNext()){
+					throw new NoSuchElementException();
+				}
+				try{
+					BatchResult batchResult = batchResultQueue.take();
+					resultCount++;
+					return batchResult;
+				}catch(InterruptedException e){
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException("Interrupted while waiting for puzzles.", e);
+				}
+			}
+		};
+		return StreamSupport.stream(Spliterators.spliterator(batchResultIter, wordsListCount,
+				Spliterator.SIZED | Spliterator.NONNULL), false)
+				.onClose(() -> closed.set(true));
+	}
+	
+	/**
+	 * Executor running processBatch workers by default, virtual threads if the
+	 * JVM has them, otherwise daemon platform threads.
+	 */
+	private static ExecutorService newBatchExecutorService(){
+		try{
+			//Java 21+, looked up so this still runs on earlier versions.
+			return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}catch(ReflectiveOperationException e){
+			return Executors.newCachedThreadPool(runnable -> {
+				Thread thread = new Thread(runnable, "crossword-batch");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+	
+	/**
+	 * How processBatch runs its searches.
+	 */
+	public static class BatchOptions{
+		
+		//null to use a new executor per batch, see processBatch.
+		private Executor executor;
+		private int maxConcurrency = Runtime.getRuntime().availableProcessors();
+		
+		public Executor executor(){
+			return executor;
+		}
+		
+		public int maxConcurrency(){
+			return maxConcurrency;
+		}
+		
+		/**
+		 * Runs searches on the given executor, which is not shut down by the batch.
+		 * By default each batch uses virtual threads where available, platform
+		 * threads otherwise.
+		 * @param executor_ executor, or null for the default.
+		 * @return this BatchOptions
+		 */
+		public BatchOptions setExecutor(Executor executor_){
+			this.executor = executor_;
+			return this;
+		}
+		
+		/**
+		 * Bounds the number of searches running at a time, by default
+		 * the number of processors, since searches are CPU-bound.
+		 * @param maxConcurrency_ positive bound.
+		 * @return this BatchOptions
+		 */
+		public BatchOptions setMaxConcurrency(int maxConcurrency_){
+			if(maxConcurrency_ < 1){
+				throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency_);
+			}
+			this.maxConcurrency = maxConcurrency_;
+			return this;
+		}
+	}
+	
+	/**
+	 * Outcome of one word list of a processBatch.
+	 */
+	public static class BatchResult{
+		
+		private final int index;
+		private final PuzzleResult puzzleResult;
+		private final Throwable failure;
+		
+		BatchResult(int index_, PuzzleResult puzzleResult_, Throwable failure_){
+			this.index = index_;
+			this.puzzleResult = puzzleResult_;
+			this.failure = failure_;
+		}
+		
+		/**
+		 * @return index of the word list in the batch.
+		 */
+		public int index(){
+			return index;
+		}
+		
+		/**
+		 * @return the puzzle, null if the search failed.
+		 */
+		public PuzzleResult puzzleResult(){
+			return puzzleResult;
+		}
+		
+		/**
+		 * @return what the search threw, null if it succeeded.
+		 */
+		public Throwable failure(){
+			return failure;
+		}
+	}
+	
+	/**
+	 * Removes duplicates and sorts words, longest first, in the order
+	 * the Board inserts them.
+	 * @param wordsList
+	 * @return new list of words.
+	 */
+	static List<String> orderWordsList(List<String> wordsList){
+		wordsList = new ArrayList<String>(new HashSet<String>(wordsList));
+		Collections.sort(wordsList, new WordComparator());
+		return wordsList;
 	}
 	
 	/**
@@ -1529,7 +3908,7 @@ public class Crossword {
 	 * word0,hint0,word1,hint1,...
 	 * @return
 	 */
-	private static List<String> buildWordHintsMap(List<String> wordsList,
+	static List<String> buildWordHintsMap(List<String> wordsList,
 			Map<String, String> wordHintsMap) {
 		
 		List<String> updatedWordsList = new ArrayList<String>();
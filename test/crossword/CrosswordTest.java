@@ -0,0 +1,262 @@
+package crossword;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import crossword.Crossword.Board;
+import crossword.Crossword.BoardPosition;
+import crossword.Crossword.LevelStats;
+import crossword.Crossword.PuzzleResult;
+import crossword.Crossword.ResultCache;
+import crossword.Crossword.SearchListener;
+import crossword.Crossword.SearchMetrics;
+import crossword.Crossword.SearchOptions;
+
+/**
+ * Checks of the search, run with ant test. Plain main, as the build has no
+ * test framework, exits with an error on the first failed check.
+ * @author yihedong
+ *
+ */
+public class CrosswordTest {
+
+	/**
+	 * Word/hint pairs, alternating, as passed to processSet. Same as the start
+	 * of the benchmark corpus.
+	 */
+	static final String[] CORPUS = {
+		"APRIORI", "Not empirical", "POSED", "Not natural-looking",
+		"ARMHOLE", "Sometimes hard-to-find shirt opening", "ROUNDER", "Drunkard",
+		"ALLUDES", "Makes reference to", "CZAR", "Government policy chief",
+		"RIP", "Headstone inits", "CAMERA", "Smartphone feature",
+		"FINESSE", "Deft touch", "GRANNIES", "Ones in rocking chairs",
+		"DOPE", "Pretty cool in slang", "GREECE", "Mamma Mia setting",
+		"TREAT", "Goody", "ZOOM", "Speed along",
+		"BURRITO", "Chipotle choice"
+	};
+
+	public static void main(String[] args) throws IOException{
+		defaultSearchUnchanged();
+		dominanceKeepsSolvedPositions();
+		bestSolutionMatchesProcessSet();
+		solutionIteratorHoldsNoSolutions();
+		cacheKeyedOnResultOptions();
+		wordOverParallelWordStart();
+		System.out.println("All checks passed.");
+	}
+
+	/**
+	 * @return first wordCount word/hint pairs of CORPUS.
+	 */
+	static List<String> wordsHintsList(int wordCount){
+		return new ArrayList<String>(Arrays.asList(CORPUS).subList(0, 2*wordCount));
+	}
+
+	/**
+	 * New Board for the first wordCount words, as processSet builds it.
+	 */
+	static Board newBoard(int wordCount, SearchOptions searchOptions){
+		List<String> wordsList = Crossword.orderWordsList(
+				Crossword.buildWordHintsMap(wordsHintsList(wordCount), new HashMap<String, String>()));
+		String firstWord = wordsList.remove(0);
+		return new Board(firstWord, wordsList, searchOptions);
+	}
+
+	static String toJson(PuzzleResult puzzleResult) throws IOException{
+		StringBuilder sb = new StringBuilder();
+		puzzleResult.compactPuzzle().writeJson(sb);
+		return sb.toString();
+	}
+
+	static void check(boolean condition, String message){
+		if(!condition){
+			throw new AssertionError(message);
+		}
+	}
+
+	/**
+	 * Puzzle processSet returned for the first 15 words of CORPUS before 
+	 * dominance pruning was added.
+	 */
+	static final String DEFAULT_PUZZLE_JSON = 
+			"{\"rows\":22,\"cols\":22," 
+			+ "\"grid\":\"####################################################################################Z#C##" 
+			+ "#################OTZ###################ORA#################CAMERA#################R#A###############" 
+			+ "###BM#T##################UH################A###RO################P###RL###############GRANNIES######" 
+			+ "#########IL##T#################OL#POSED#############RRU#####O#############OID#G###P############RU#E#" 
+			+ "R###E###########FINESSE################PD###E#################E###C#################R###E######\"," 
+			+ "\"cells\":[3,18,3,20,4,18,4,19,4,20,5,18,5,19,5,20,6,16,6,17,6,18,6,19,6,20,6,21,7,17,7,19,8,16,8," 
+			+ "17,8,19,9,16,9,17,10,12,10,16,10,17,11,12,11,16,11,17,12,11,12,12,12,13,12,14,12,15,12,16,12,17,12," 
+			+ "18,13,12,13,13,13,16,14,12,14,13,14,15,14,16,14,17,14,18,14,19,15,11,15,12,15,13,15,19,16,11,16,12," 
+			+ "16,13,16,15,16,19,17,10,17,11,17,13,17,15,17,19,18,9,18,10,18,11,18,12,18,13,18,14,18,15,19,10,19," 
+			+ "11,19,15,20,11,20,15,21,11,21,15]," 
+			+ "\"labels\":\"01 2    34      5    6     7 8          9   \u03b1\u03b2      \u03b3 \u03b4    \u03b5  " 
+			+ "           \"," 
+			+ "\"slots\":[{\"row\":3,\"col\":18,\"dir\":\"down\",\"label\":\"0\",\"word\":\"ZOOM\"," 
+			+ "\"hint\":\"Speed along\"},{\"row\":3,\"col\":20,\"dir\":\"down\",\"label\":\"1\",\"word\":\"CZAR\"," 
+			+ "\"hint\":\"Government policy chief\"},{\"row\":4,\"col\":19,\"dir\":\"down\",\"label\":\"2\"," 
+			+ "\"word\":\"TREAT\",\"hint\":\"Goody\"},{\"row\":6,\"col\":16,\"dir\":\"across\",\"label\":\"3\"," 
+			+ "\"word\":\"CAMERA\",\"hint\":\"Smartphone feature\"},{\"row\":6,\"col\":17,\"dir\":\"down\"," 
+			+ "\"label\":\"4\",\"word\":\"ARMHOLE\",\"hint\":\"Sometimes hard-to-find shirt opening\"},{\"row\":8," 
+			+ "\"col\":16,\"dir\":\"down\",\"label\":\"5\",\"word\":\"BURRITO\",\"hint\":\"Chipotle choice\"}," 
+			+ "{\"row\":10,\"col\":12,\"dir\":\"down\",\"label\":\"6\",\"word\":\"APRIORI\"," 
+			+ "\"hint\":\"Not empirical\"},{\"row\":12,\"col\":11,\"dir\":\"across\",\"label\":\"7\"," 
+			+ "\"word\":\"GRANNIES\",\"hint\":\"Ones in rocking chairs\"},{\"row\":12,\"col\":13,\"dir\":\"down\"," 
+			+ "\"label\":\"8\",\"word\":\"ALLUDES\",\"hint\":\"Makes reference to\"},{\"row\":14,\"col\":15," 
+			+ "\"dir\":\"across\",\"label\":\"9\",\"word\":\"POSED\",\"hint\":\"Not natural-looking\"},{\"row\":14," 
+			+ "\"col\":19,\"dir\":\"down\",\"label\":\"\u03b1\",\"word\":\"DOPE\"," 
+			+ "\"hint\":\"Pretty cool in slang\"},{\"row\":15,\"col\":11,\"dir\":\"down\",\"label\":\"\u03b2\"," 
+			+ "\"word\":\"ROUNDER\",\"hint\":\"Drunkard\"},{\"row\":16,\"col\":15,\"dir\":\"down\"," 
+			+ "\"label\":\"\u03b3\",\"word\":\"GREECE\",\"hint\":\"Mamma Mia setting\"},{\"row\":17,\"col\":10," 
+			+ "\"dir\":\"down\",\"label\":\"\u03b4\",\"word\":\"RIP\",\"hint\":\"Headstone inits\"},{\"row\":18," 
+			+ "\"col\":9,\"dir\":\"across\",\"label\":\"\u03b5\",\"word\":\"FINESSE\",\"hint\":\"Deft touch\"}]}";
+
+	/**
+	 * Options that prune are off by default, so the search is exhaustive. The
+	 * counts are those of the exhaustive search on the 15 words, and the puzzle
+	 * is DEFAULT_PUZZLE_JSON.
+	 */
+	static void defaultSearchUnchanged() throws IOException{
+		SearchOptions searchOptions = new SearchOptions();
+		check(0 == searchOptions.dominanceKeepCount(), "dominance pruning on by default");
+		Board board = newBoard(15, searchOptions);
+		int solvedCount = board.build().size();
+		check(449 == solvedCount, "solved positions: " + solvedCount);
+		int intersectionCount = board.bestSolution().totalWordIntersectionCount;
+		check(49 == intersectionCount, "intersections of best puzzle: " + intersectionCount);
+		String json = toJson(Crossword.processSet(wordsHintsList(15), new SearchOptions(), null));
+		check(DEFAULT_PUZZLE_JSON.equals(json), "default puzzle changed: " + json);
+	}
+
+	/**
+	 * Dominance pruning only groups unsolved positions, solved ones are all kept.
+	 */
+	static void dominanceKeepsSolvedPositions(){
+		Board board = newBoard(15, new SearchOptions().setDominanceKeepCount(1));
+		List<BoardPosition> solvedBoardPosList = newBoard(15, new SearchOptions()).build();
+		List<BoardPosition> keptBoardPosList = board.selectNonDominated(solvedBoardPosList, 1);
+		check(keptBoardPosList.equals(solvedBoardPosList), "solved positions pruned: " 
+				+ keptBoardPosList.size() + " of " + solvedBoardPosList.size() + " kept");
+	}
+
+	/**
+	 * Under beam and cap options, the best of bestSolutions is the puzzle processSet 
+	 * returns, found expanding the same positions.
+	 */
+	static void bestSolutionMatchesProcessSet() throws IOException{
+		for(int wordCount : new int[]{5, 10, 15}){
+			for(int beamWidth : new int[]{1, 3, 20}){
+				SearchMetrics buildMetrics = new SearchMetrics();
+				SearchMetrics iterMetrics = new SearchMetrics();
+				String json = toJson(Crossword.processSet(wordsHintsList(wordCount), 
+						new SearchOptions().setBeamWidth(beamWidth).setSearchListener(buildMetrics), null));
+				List<PuzzleResult> puzzleResultList = Crossword.bestSolutions(wordsHintsList(wordCount), 
+						new SearchOptions().setBeamWidth(beamWidth).setSearchListener(iterMetrics), 1);
+				String message = wordCount + " words, beam width " + beamWidth;
+				check(1 == puzzleResultList.size(), "no best solution, " + message);
+				check(json.equals(toJson(puzzleResultList.get(0))), "best solution differs, " + message);
+				check(buildMetrics.nodesExpanded() == iterMetrics.nodesExpanded(), 
+						"expanded " + iterMetrics.nodesExpanded() + " positions instead of " 
+						+ buildMetrics.nodesExpanded() + ", " + message);
+			}
+			String json = toJson(Crossword.processSet(wordsHintsList(wordCount), 
+					new SearchOptions().setMaxLivePositions(5), null));
+			List<PuzzleResult> puzzleResultList = Crossword.bestSolutions(wordsHintsList(wordCount), 
+					new SearchOptions().setMaxLivePositions(5), 1);
+			check(json.equals(toJson(puzzleResultList.get(0))), 
+					"best solution differs, " + wordCount + " words, 5 live positions");
+		}
+	}
+
+	/**
+	 * Without beam or cap, solutions returned by the iterator are no longer
+	 * referenced by it, and levels are reported as build() reports them.
+	 */
+	static void solutionIteratorHoldsNoSolutions(){
+		LevelRecorder buildRecorder = new LevelRecorder();
+		newBoard(15, new SearchOptions().setSearchListener(buildRecorder)).build();
+		LevelRecorder iterRecorder = new LevelRecorder();
+		Iterator<BoardPosition> solutionIter = 
+				newBoard(15, new SearchOptions().setSearchListener(iterRecorder)).solutionIterator();
+		List<WeakReference<BoardPosition>> solvedRefList = new ArrayList<WeakReference<BoardPosition>>();
+		int heldCount = 0;
+		while(solutionIter.hasNext()){
+			solvedRefList.add(new WeakReference<BoardPosition>(solutionIter.next()));
+			//midway through the last level.
+			if(400 == solvedRefList.size()){
+				System.gc();
+				for(WeakReference<BoardPosition> solvedRef : solvedRefList){
+					if(null != solvedRef.get()){
+						heldCount++;
+					}
+				}
+			}
+		}
+		check(449 == solvedRefList.size(), "solutions: " + solvedRefList.size());
+		check(heldCount < 200, heldCount + " of 400 solutions still held by the iterator");
+		check(buildRecorder.levelList.equals(iterRecorder.levelList), 
+				"levels reported " + iterRecorder.levelList + " instead of " + buildRecorder.levelList);
+	}
+	
+	/**
+	 * Records the counts of each level, and of the whole search.
+	 */
+	static class LevelRecorder implements SearchListener{
+		final List<String> levelList = new ArrayList<String>();
+		
+		@Override
+		public void levelExpanded(LevelStats levelStats){
+			levelList.add(levelStats.level() + ":" + levelStats.nodesExpanded() + "/" + levelStats.solvedCount() 
+					+ "/" + levelStats.childrenCount() + "/" + levelStats.transpositions());
+		}
+		
+		@Override
+		public void searchFinished(int levelCount, int solvedCount, long rankNanos){
+			levelList.add(levelCount + ":" + solvedCount);
+		}
+	}
+
+	/**
+	 * Searches with options that can change the puzzle don't share cache entries,
+	 * other options do.
+	 */
+	static void cacheKeyedOnResultOptions(){
+		ResultCache resultCache = new ResultCache(10, 0, TimeUnit.SECONDS);
+		SearchOptions[] searchOptionsAr = {
+			new SearchOptions(),
+			new SearchOptions().setTranspositionTable(false),
+			new SearchOptions().setDominanceKeepCount(2),
+			new SearchOptions().setBeamWidth(3),
+			new SearchOptions().setMaxLivePositions(3)
+		};
+		for(SearchOptions searchOptions : searchOptionsAr){
+			Crossword.processSet(wordsHintsList(8), searchOptions.setResultCache(resultCache), null);
+		}
+		check(0 == resultCache.hits(), "options changing the puzzle share a cache entry");
+		Crossword.processSet(wordsHintsList(8), 
+				new SearchOptions().setSearchListener(new SearchMetrics()).setResultCache(resultCache), null);
+		check(1 == resultCache.hits(), "listener changes the cache entry");
+	}
+
+	/**
+	 * A word can be placed over the start of a parallel word, CD inside CDDE here,
+	 * then the puzzle has fewer slots than words placed.
+	 */
+	static void wordOverParallelWordStart() throws IOException{
+		List<String> wordsHintsList = Arrays.asList("AAC", "h0", "CDDE", "h1", "ADCAEC", "h2", 
+				"CD", "h3", "ADBAA", "h4", "EBDCE", "h5", "BEED", "h6");
+		PuzzleResult puzzleResult = Crossword.processSet(new ArrayList<String>(wordsHintsList), 
+				new SearchOptions(), null);
+		String json = toJson(puzzleResult);
+		check(!json.contains("null"), "slot without a word: " + json);
+		puzzleResult.compactPuzzle().writeBinary(new DataOutputStream(new ByteArrayOutputStream()));
+	}
+}